@@ -0,0 +1,29 @@
+package net.maisikoleni.javadoc.util;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The Vector API part of {@link CharSearch}. This class is only compiled with
+ * the Maven profile <code>vector-api</code> and must only be loaded if the
+ * module <code>jdk.incubator.vector</code> is present.
+ */
+final class VectorizedCharSearch implements CharSearch.RangeSearch {
+
+	private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+	@Override
+	public int indexOf(char[] keys, int from, int to, char c) {
+		int i = from;
+		for (int upperBound = from + SPECIES.loopBound(to - from); i < upperBound; i += SPECIES.length()) {
+			var matches = ShortVector.fromCharArray(SPECIES, keys, i).eq((short) c);
+			if (matches.anyTrue())
+				return i + matches.firstTrue();
+		}
+		for (; i < to; i++) {
+			if (keys[i] == c)
+				return i;
+		}
+		return -1;
+	}
+}
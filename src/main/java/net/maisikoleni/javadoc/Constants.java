@@ -10,6 +10,8 @@ public final class Constants {
 
 	public static final String DB_PATH_DEFAULT = "database";
 
+	public static final String TRIE_IMAGES_DEFAULT = "true";
+
 	public static final String QUERY_LENGHT_LIMIT_DEFAULT = "1000";
 
 	public static final String SUGGESTION_COUNT_DEFAULT = "" + JavadocSearch.DEFAULT_COUNT;
@@ -18,6 +20,12 @@ public final class Constants {
 
 	public static final String LOG_SEARCH_THRESHOLD_NANOS_DEFAULT = "" + 20_000_000;
 
+	public static final String SUBDIVISION_MAX_SUFFIXES_DEFAULT = "" + Integer.MAX_VALUE;
+
+	public static final String SUBDIVISION_MIN_SUFFIX_RANK_DEFAULT = "0";
+
+	public static final String SUBDIVISION_PARAMETER_LISTS_DEFAULT = "true";
+
 	public static final String LIBRARY_ID_PATTERN_STRING = "[\\p{Alnum}_-]{2,13}";
 	public static final Pattern LIBRARY_ID_PATTERN = Pattern.compile(LIBRARY_ID_PATTERN_STRING);
 
@@ -21,6 +21,9 @@ public interface Configuration {
 
 		@WithDefault(DB_PATH_DEFAULT)
 		Path path();
+
+		@WithDefault(TRIE_IMAGES_DEFAULT)
+		boolean trieImages();
 	}
 
 	ServerConfig server();
@@ -67,5 +70,25 @@ public interface Configuration {
 		@WithName("default")
 		@WithDefault("false")
 		boolean isDefault();
+
+		SubdivisionConfig subdivision();
+	}
+
+	/**
+	 * Limits the name suffixes that are searchable, see
+	 * {@link net.maisikoleni.javadoc.search.SubdivisionPolicy}.
+	 */
+	public interface SubdivisionConfig {
+
+		@PositiveOrZero
+		@WithDefault(SUBDIVISION_MAX_SUFFIXES_DEFAULT)
+		int maxSuffixes();
+
+		@PositiveOrZero
+		@WithDefault(SUBDIVISION_MIN_SUFFIX_RANK_DEFAULT)
+		double minSuffixRank();
+
+		@WithDefault(SUBDIVISION_PARAMETER_LISTS_DEFAULT)
+		boolean parameterLists();
 	}
 }
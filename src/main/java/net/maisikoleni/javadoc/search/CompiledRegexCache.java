@@ -0,0 +1,108 @@
+package net.maisikoleni.javadoc.search;
+
+import java.util.Comparator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.maisikoleni.javadoc.util.regex.CompiledRegex;
+
+/**
+ * Caches the {@link CompiledRegex}es of queries that are searched repeatedly.
+ * <p>
+ * Generating and compiling the regexes of a query takes as long as a search
+ * with few results, so a query that was searched {@link #threshold} times is
+ * not compiled again. Queries are identified by their
+ * {@linkplain TrieSearchEngineUtils#normalizeQuery(String) normalized} form,
+ * and each search needs to {@linkplain #compile(String) compile} its query only
+ * once. Once {@link #maximumSize} queries are counted, the ones that are not
+ * cached yet are dropped, and the least recently searched cached ones if these
+ * still take more than half of the space. Compiled regexes are immutable, so a
+ * cache can be shared by all search engines.
+ */
+final class CompiledRegexCache {
+
+	private static final int DEFAULT_THRESHOLD = 2;
+	private static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+	private final int threshold;
+	private final int maximumSize;
+	private final ConcurrentHashMap<String, QueryStatistics> queries = new ConcurrentHashMap<>();
+	private final AtomicLong searches = new AtomicLong();
+	private final AtomicBoolean evicting = new AtomicBoolean();
+
+	CompiledRegexCache() {
+		this(DEFAULT_THRESHOLD, DEFAULT_MAXIMUM_SIZE);
+	}
+
+	CompiledRegexCache(int threshold, int maximumSize) {
+		if (threshold < 1)
+			throw new IllegalArgumentException("threshold must be positive");
+		if (maximumSize < 1)
+			throw new IllegalArgumentException("maximumSize must be positive");
+		this.threshold = threshold;
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * The case sensitive and the case insensitive regex of a query.
+	 */
+	record CompiledQuery(CompiledRegex caseSensitive, CompiledRegex caseInsensitive) {
+	}
+
+	private static final class QueryStatistics {
+
+		final AtomicInteger searches = new AtomicInteger();
+		volatile long lastSearch;
+		volatile CompiledQuery compiledQuery;
+	}
+
+	/**
+	 * Returns the compiled regexes of the query and counts it as searched once.
+	 */
+	CompiledQuery compile(String normalizedQuery) {
+		var statistics = queries.get(normalizedQuery);
+		if (statistics == null) {
+			if (queries.size() >= maximumSize)
+				evict();
+			statistics = queries.computeIfAbsent(normalizedQuery, q -> new QueryStatistics());
+		}
+		statistics.lastSearch = searches.incrementAndGet();
+		var compiledQuery = statistics.compiledQuery;
+		if (compiledQuery != null)
+			return compiledQuery;
+		var regex = TrieSearchEngineUtils.generateRegex(normalizedQuery);
+		compiledQuery = new CompiledQuery(CompiledRegex.compile(regex, false), CompiledRegex.compile(regex, true));
+		if (statistics.searches.incrementAndGet() >= threshold)
+			statistics.compiledQuery = compiledQuery;
+		return compiledQuery;
+	}
+
+	/**
+	 * Drops all queries that are not cached yet and then the least recently
+	 * searched ones, until at most half of the maximum size is left. This frees
+	 * enough space to amortize the sorting. Only one thread evicts at a time,
+	 * the others continue meanwhile.
+	 */
+	private void evict() {
+		if (!evicting.compareAndSet(false, true))
+			return;
+		try {
+			queries.entrySet().removeIf(entry -> entry.getValue().compiledQuery == null);
+			int excess = queries.size() - maximumSize / 2;
+			if (excess > 0) {
+				// copy the times first, because they keep changing while sorting
+				queries.entrySet().stream()
+						.map(entry -> new Use(entry.getKey(), entry.getValue(), entry.getValue().lastSearch))
+						.sorted(Comparator.comparingLong(Use::lastSearch)).limit(excess)
+						.forEach(use -> queries.remove(use.normalizedQuery(), use.statistics()));
+			}
+		} finally {
+			evicting.set(false);
+		}
+	}
+
+	private record Use(String normalizedQuery, QueryStatistics statistics, long lastSearch) {
+	}
+}
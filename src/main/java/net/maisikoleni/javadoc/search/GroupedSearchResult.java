@@ -20,6 +20,11 @@ public record GroupedSearchResult(Stream<Module> modules, Stream<Package> packag
 		return new GroupedSearchResult(Stream.of(), Stream.of(), Stream.of(), Stream.of(), Stream.of());
 	}
 
+	public GroupedSearchResult limit(int limitPerGroup) {
+		return new GroupedSearchResult(modules.limit(limitPerGroup), packages.limit(limitPerGroup),
+				types.limit(limitPerGroup), members.limit(limitPerGroup), tags.limit(limitPerGroup));
+	}
+
 	public GroupedSearchResult ifEmptyTry(Supplier<GroupedSearchResult> other) {
 		var modulesIt = modules.iterator();
 		var packagesIt = packages.iterator();
@@ -1,8 +1,22 @@
 package net.maisikoleni.javadoc.search;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import net.maisikoleni.javadoc.entities.JavadocIndex;
 import net.maisikoleni.javadoc.entities.Member;
 import net.maisikoleni.javadoc.entities.Module;
@@ -10,40 +24,233 @@ import net.maisikoleni.javadoc.entities.Package;
 import net.maisikoleni.javadoc.entities.SearchableEntity;
 import net.maisikoleni.javadoc.entities.Tag;
 import net.maisikoleni.javadoc.entities.Type;
+import net.maisikoleni.javadoc.util.regex.CaseAwareRegex;
 import net.maisikoleni.javadoc.util.regex.CompiledRegex;
+import net.maisikoleni.javadoc.util.regex.FuzzyRegex;
 import net.maisikoleni.javadoc.util.regex.GradingLongStepMatcher;
 import net.maisikoleni.javadoc.util.regex.Regex;
+import net.maisikoleni.javadoc.util.trie.FrozenTrie;
+import net.maisikoleni.javadoc.util.trie.FrozenTrie.ValueCodec;
+import net.maisikoleni.javadoc.util.trie.RankedTrie;
+import net.maisikoleni.javadoc.util.trie.RankedTrie.GradedValue;
 import net.maisikoleni.javadoc.util.trie.RankedTrie.RankedConcurrentTrie;
-import net.maisikoleni.javadoc.util.trie.RankedTrie.RankingFunction;
+import net.maisikoleni.javadoc.util.trie.RankedTrie.SeparableRankingFunction;
 import net.maisikoleni.javadoc.util.trie.Trie;
+import net.maisikoleni.javadoc.util.trie.TrieImage;
 
 public final class RankedTrieSearchEngine extends IndexBasedSearchEngine {
 
-	private final Trie<RankedEntry<SearchableEntity>> all;
-	private final Trie<RankedEntry<Module>> modules;
-	private final Trie<RankedEntry<Package>> packages;
-	private final Trie<RankedEntry<Type>> types;
-	private final Trie<RankedEntry<Member>> members;
-	private final Trie<RankedEntry<Tag>> tags;
+	private static final Logger LOG = LoggerFactory.getLogger(RankedTrieSearchEngine.class);
+
+	/**
+	 * Must be incremented whenever the generated tries change for the same index.
+	 */
+	private static final int IMAGE_CONTENT_VERSION = 1;
+
+	private static final CompiledRegexCache COMPILED_REGEXES = new CompiledRegexCache();
+	/**
+	 * Larger than the highest entry rank plus the highest grade, so all case
+	 * insensitive matches rank below the case sensitive ones.
+	 */
+	private static final double CASE_MISMATCH_PENALTY = 8.0;
+	/**
+	 * Queries need at least this many chars for each edit the fuzzy search allows.
+	 */
+	private static final int QUERY_LENGTH_PER_EDIT = 4;
+	/**
+	 * Bounds the fuzzy search of a trie to a few milliseconds. The fuzzy matcher
+	 * cannot look up a single transition, so it steps into every child of the
+	 * nodes it expands.
+	 */
+	private static final long FUZZY_STEP_BUDGET = 50_000;
 
+	private final RankedTrie<RankedEntry<SearchableEntity>> all;
+	private final RankedTrie<RankedEntry<Module>> modules;
+	private final RankedTrie<RankedEntry<Package>> packages;
+	private final RankedTrie<RankedEntry<Type>> types;
+	private final RankedTrie<RankedEntry<Member>> members;
+	private final RankedTrie<RankedEntry<Tag>> tags;
+	private final List<RankedEntryCodec<?>> codecs;
+
+	/**
+	 * Generates the tries and stores their values encoded by the
+	 * {@link RankedEntryCodec}s, so that no {@link RankedEntry} objects are kept.
+	 */
 	public RankedTrieSearchEngine(JavadocIndex index, RankedConcurrentTrieGenerator generator) {
 		super(index);
-		all = generator.generateTrie(index.stream());
-		modules = generator.generateTrie(index.modules());
-		packages = generator.generateTrie(index.packages());
-		types = generator.generateTrie(index.types());
-		members = generator.generateTrie(index.members());
-		tags = generator.generateTrie(index.tags());
+		var generatedModules = generator.generateTrie(index.modules());
+		var generatedPackages = generator.generateTrie(index.packages());
+		var generatedTypes = generator.generateTrie(index.types());
+		var generatedMembers = generator.generateTrie(index.members());
+		var generatedTags = generator.generateTrie(index.tags());
+		var generatedAll = generator.mergeTries(
+				List.of(generatedModules, generatedPackages, generatedTypes, generatedMembers, generatedTags));
+		codecs = imageCodecs(index);
+		all = encodedTrie(generatedAll, codecs.get(0));
+		modules = encodedTrie(generatedModules, codecs.get(1));
+		packages = encodedTrie(generatedPackages, codecs.get(2));
+		types = encodedTrie(generatedTypes, codecs.get(3));
+		members = encodedTrie(generatedMembers, codecs.get(4));
+		tags = encodedTrie(generatedTags, codecs.get(5));
 	}
 
 	public RankedTrieSearchEngine(JavadocIndex index) {
-		this(index, new RankedConcurrentTrieGenerator());
+		this(index, RankedConcurrentTrieGenerator.of());
+	}
+
+	@SuppressWarnings("unchecked")
+	private RankedTrieSearchEngine(JavadocIndex index, List<FrozenTrie<?>> tries, List<RankedEntryCodec<?>> codecs) {
+		super(index);
+		this.codecs = codecs;
+		all = rankedTrie((FrozenTrie<RankedEntry<SearchableEntity>>) tries.get(0));
+		modules = rankedTrie((FrozenTrie<RankedEntry<Module>>) tries.get(1));
+		packages = rankedTrie((FrozenTrie<RankedEntry<Package>>) tries.get(2));
+		types = rankedTrie((FrozenTrie<RankedEntry<Type>>) tries.get(3));
+		members = rankedTrie((FrozenTrie<RankedEntry<Member>>) tries.get(4));
+		tags = rankedTrie((FrozenTrie<RankedEntry<Tag>>) tries.get(5));
+	}
+
+	private static <S extends SearchableEntity> RankedTrie<RankedEntry<S>> rankedTrie(
+			FrozenTrie<RankedEntry<S>> trie) {
+		return new RankedTrie<>(trie, SearchableEntityRankingFunction.get());
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <S extends SearchableEntity> RankedTrie<RankedEntry<S>> encodedTrie(Trie<RankedEntry<S>> trie,
+			RankedEntryCodec<?> codec) {
+		return rankedTrie(trie.freeze().withEncodedValues((RankedEntryCodec<S>) codec));
+	}
+
+	/**
+	 * Uses the tries of the given {@link TrieImage} file if it is valid and was
+	 * created for the same index. Otherwise, the tries are generated and written to
+	 * the image file for the next time.
+	 */
+	public static RankedTrieSearchEngine fromImageOrGenerate(JavadocIndex index,
+			RankedConcurrentTrieGenerator generator, Path imageFile) {
+		var codecs = imageCodecs(index);
+		long fingerprint = imageFingerprint(index, generator.subdivisionPolicy());
+		if (Files.exists(imageFile)) {
+			try {
+				var image = TrieImage.map(imageFile);
+				if (image.fingerprint() == fingerprint) {
+					LOG.info("Using trie image {}", imageFile);
+					return new RankedTrieSearchEngine(index, image.tries(codecs), codecs);
+				}
+				LOG.info("Trie image {} is outdated", imageFile);
+			} catch (IOException e) {
+				LOG.warn("Trie image {} could not be used: {}", imageFile, e.toString());
+			}
+		}
+		var searchEngine = new RankedTrieSearchEngine(index, generator);
+		try {
+			TrieImage.write(imageFile, fingerprint, searchEngine.imageEntries());
+			LOG.info("Stored trie image {}", imageFile);
+		} catch (IOException e) {
+			LOG.warn("Trie image {} could not be stored: {}", imageFile, e.toString());
+		}
+		return searchEngine;
+	}
+
+	private List<TrieImage.Entry<?>> imageEntries() {
+		var tries = List.of(all, modules, packages, types, members, tags);
+		return IntStream.range(0, tries.size())
+				.<TrieImage.Entry<?>>mapToObj(i -> imageEntry(tries.get(i), codecs.get(i))).toList();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <S extends SearchableEntity> TrieImage.Entry<RankedEntry<S>> imageEntry(Trie<?> trie,
+			RankedEntryCodec<S> codec) {
+		return new TrieImage.Entry<>(((Trie<RankedEntry<S>>) trie).freeze(), codec);
+	}
+
+	/**
+	 * Returns the codecs in the order of the tries, which the constructors and the
+	 * {@link TrieImage} rely on.
+	 */
+	private static List<RankedEntryCodec<?>> imageCodecs(JavadocIndex index) {
+		return List.of(new RankedEntryCodec<>(index.stream().toList()), new RankedEntryCodec<>(index.modules()),
+				new RankedEntryCodec<>(index.packages()), new RankedEntryCodec<>(index.types()),
+				new RankedEntryCodec<>(index.members()), new RankedEntryCodec<>(index.tags()));
+	}
+
+	/**
+	 * Identifies the trie input of the index, which consists of the subdivision
+	 * policy and the trie names of all entities in index order. The input is
+	 * digested with SHA-256, every name is prefixed with its length, and the first
+	 * 64 bits of the digest are used.
+	 */
+	static long imageFingerprint(JavadocIndex index, SubdivisionPolicy subdivisionPolicy) {
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 must be supported by every Java platform", e);
+		}
+		var numbers = ByteBuffer.allocate(Long.BYTES);
+		digest.update(numbers.clear().putInt(IMAGE_CONTENT_VERSION).flip());
+		digest.update(numbers.clear().putInt(subdivisionPolicy.maxSuffixes()).flip());
+		digest.update(numbers.clear().putDouble(subdivisionPolicy.minSuffixRank()).flip());
+		digest.update(numbers.clear().put((byte) (subdivisionPolicy.parameterLists() ? 1 : 0)).flip());
+		for (var entities : List.of(index.modules(), index.packages(), index.types(), index.members(),
+				index.tags())) {
+			digest.update(numbers.clear().putInt(entities.size()).flip());
+			for (var entity : entities) {
+				var trieName = TrieSearchEngineUtils.generateTrieName(entity).toString()
+						.getBytes(StandardCharsets.UTF_16LE);
+				digest.update(numbers.clear().putInt(trieName.length).flip());
+				digest.update(trieName);
+			}
+		}
+		return ByteBuffer.wrap(digest.digest()).getLong();
+	}
+
+	/**
+	 * Encodes a {@link RankedEntry} as the entity index in the upper and the rank
+	 * as <code>float</code> in the lower 32 bits. The entities of one library are
+	 * numbered once, so the trie values only refer to them by index.
+	 */
+	static final class RankedEntryCodec<S extends SearchableEntity> implements ValueCodec<RankedEntry<S>> {
+
+		private final List<S> entities;
+		private Map<S, Integer> entityIndices;
+
+		RankedEntryCodec(List<S> entities) {
+			this.entities = entities;
+		}
+
+		@Override
+		public long encode(RankedEntry<S> value) {
+			if (entityIndices == null) {
+				entityIndices = new IdentityHashMap<>(entities.size());
+				for (int i = 0; i < entities.size(); i++)
+					entityIndices.put(entities.get(i), i);
+			}
+			var entityIndex = entityIndices.get(value.entity());
+			float rank = (float) value.rank();
+			if (entityIndex == null || rank != value.rank())
+				throw new IllegalArgumentException("Cannot encode " + value);
+			return ((long) entityIndex << Integer.SIZE) | Integer.toUnsignedLong(Float.floatToIntBits(rank));
+		}
+
+		@Override
+		public RankedEntry<S> decode(long code) {
+			return new RankedEntry<>(entities.get((int) (code >>> Integer.SIZE)), Float.intBitsToFloat((int) code));
+		}
 	}
 
 	public static final class RankedConcurrentTrieGenerator extends TrieGenerator {
 
 		RankedConcurrentTrieGenerator() {
-			super(true);
+			this(Construction.INCREMENTAL);
+		}
+
+		RankedConcurrentTrieGenerator(Construction construction) {
+			this(construction, SubdivisionPolicy.ALL);
+		}
+
+		RankedConcurrentTrieGenerator(Construction construction, SubdivisionPolicy subdivisionPolicy) {
+			super(true, true, construction, subdivisionPolicy);
 		}
 
 		<S extends SearchableEntity> Trie<RankedEntry<S>> generateTrie(List<S> index) {
@@ -54,12 +261,34 @@ public final class RankedTrieSearchEngine extends IndexBasedSearchEngine {
 			return super.generateTrie(index.parallel(), RankedConcurrentTrieGenerator::newTrie, RankedEntry::from);
 		}
 
+		/**
+		 * Merges tries of the different entity types into one for all entities.
+		 */
+		@SuppressWarnings("unchecked")
+		Trie<RankedEntry<SearchableEntity>> mergeTries(
+				List<? extends Trie<? extends RankedEntry<? extends SearchableEntity>>> tries) {
+			// entries of a subtype are valid entries for all entities
+			return super.mergeTries(RankedConcurrentTrieGenerator::newTrie,
+					(List<Trie<RankedEntry<SearchableEntity>>>) (List<?>) tries);
+		}
+
 		static <S extends SearchableEntity> RankedConcurrentTrie<RankedEntry<S>> newTrie() {
 			return new RankedConcurrentTrie<>(SearchableEntityRankingFunction.get());
 		}
 
+		/**
+		 * Returns a generator that builds the tries from the sorted keys.
+		 */
 		public static RankedConcurrentTrieGenerator of() {
-			return new RankedConcurrentTrieGenerator();
+			return of(SubdivisionPolicy.ALL);
+		}
+
+		/**
+		 * Returns a generator that builds the tries from the sorted keys that the
+		 * subdivision policy produces.
+		 */
+		public static RankedConcurrentTrieGenerator of(SubdivisionPolicy subdivisionPolicy) {
+			return new RankedConcurrentTrieGenerator(Construction.SORTED, subdivisionPolicy);
 		}
 	}
 
@@ -80,32 +309,136 @@ public final class RankedTrieSearchEngine extends IndexBasedSearchEngine {
 		}
 	}
 
+	/**
+	 * Case insensitive matches are only returned if there are no case sensitive
+	 * ones. If there are none of both, the results of a {@linkplain FuzzyRegex
+	 * fuzzy search} are returned.
+	 */
 	@Override
 	public Stream<SearchableEntity> search(String query) {
-		var regex = TrieSearchEngineUtils.generateRegexFromQuery(query);
-		return GroupedSearchResult.ifEmptyTry(search(all, CompiledRegex.compile(regex, false)),
-				() -> search(all, CompiledRegex.compile(regex, true)));
+		var normalizedQuery = TrieSearchEngineUtils.normalizeQuery(query);
+		var compiledQuery = COMPILED_REGEXES.compile(normalizedQuery);
+		var caseSensitive = compiledQuery.caseSensitive();
+		var caseInsensitive = compiledQuery.caseInsensitive();
+		Stream<SearchableEntity> results;
+		if (CaseAwareRegex.isCompatible(caseSensitive)) {
+			var caseAwareResults = new CaseAwareResults<>(all,
+					new CaseAwareRegex(caseSensitive, caseInsensitive, CASE_MISMATCH_PENALTY));
+			results = caseAwareResults.stream(caseAwareResults.hasCaseSensitiveMatch());
+		} else {
+			// only for unrealistically long queries
+			results = GroupedSearchResult.ifEmptyTry(search(all, caseSensitive), () -> search(all, caseInsensitive));
+		}
+		return GroupedSearchResult.ifEmptyTry(results, () -> searchFuzzy(all, normalizedQuery, caseInsensitive));
 	}
 
+	/**
+	 * Case insensitive matches are only returned if there are no case sensitive
+	 * ones in any of the groups. If there are none of both, the results of a
+	 * {@linkplain FuzzyRegex fuzzy search} are returned.
+	 */
 	@Override
 	public GroupedSearchResult searchGroupedByType(String query) {
-		var regex = TrieSearchEngineUtils.generateRegexFromQuery(query);
-		return searchGroupedByType(regex, false).ifEmptyTry(() -> searchGroupedByType(regex, true));
+		var normalizedQuery = TrieSearchEngineUtils.normalizeQuery(query);
+		var compiledQuery = COMPILED_REGEXES.compile(normalizedQuery);
+		var caseSensitive = compiledQuery.caseSensitive();
+		var caseInsensitive = compiledQuery.caseInsensitive();
+		GroupedSearchResult results;
+		if (CaseAwareRegex.isCompatible(caseSensitive)) {
+			results = searchCaseAwareGroupedByType(
+					new CaseAwareRegex(caseSensitive, caseInsensitive, CASE_MISMATCH_PENALTY));
+		} else {
+			// only for unrealistically long queries
+			results = searchGroupedByType(caseSensitive).ifEmptyTry(() -> searchGroupedByType(caseInsensitive));
+		}
+		return results.ifEmptyTry(() -> searchFuzzyGroupedByType(normalizedQuery, caseInsensitive));
 	}
 
 	public GroupedSearchResult searchGroupedByType(Regex regex, boolean caseInsensitive) {
-		var matcher = CompiledRegex.compile(regex, caseInsensitive);
+		return searchGroupedByType(CompiledRegex.compile(regex, caseInsensitive));
+	}
+
+	private GroupedSearchResult searchGroupedByType(GradingLongStepMatcher matcher) {
 		return new GroupedSearchResult(search(modules, matcher), search(packages, matcher), search(types, matcher),
 				search(members, matcher), search(tags, matcher));
 	}
 
+	private GroupedSearchResult searchCaseAwareGroupedByType(CaseAwareRegex matcher) {
+		var moduleResults = new CaseAwareResults<>(modules, matcher);
+		var packageResults = new CaseAwareResults<>(packages, matcher);
+		var typeResults = new CaseAwareResults<>(types, matcher);
+		var memberResults = new CaseAwareResults<>(members, matcher);
+		var tagResults = new CaseAwareResults<>(tags, matcher);
+		boolean caseSensitiveOnly = moduleResults.hasCaseSensitiveMatch() || packageResults.hasCaseSensitiveMatch()
+				|| typeResults.hasCaseSensitiveMatch() || memberResults.hasCaseSensitiveMatch()
+				|| tagResults.hasCaseSensitiveMatch();
+		return new GroupedSearchResult(moduleResults.stream(caseSensitiveOnly),
+				packageResults.stream(caseSensitiveOnly), typeResults.stream(caseSensitiveOnly),
+				memberResults.stream(caseSensitiveOnly), tagResults.stream(caseSensitiveOnly));
+	}
+
+	private GroupedSearchResult searchFuzzyGroupedByType(String normalizedQuery, CompiledRegex caseInsensitive) {
+		return new GroupedSearchResult(searchFuzzy(modules, normalizedQuery, caseInsensitive),
+				searchFuzzy(packages, normalizedQuery, caseInsensitive),
+				searchFuzzy(types, normalizedQuery, caseInsensitive),
+				searchFuzzy(members, normalizedQuery, caseInsensitive),
+				searchFuzzy(tags, normalizedQuery, caseInsensitive));
+	}
+
 	private static <T extends SearchableEntity> Stream<T> search(Trie<RankedEntry<T>> trie,
 			GradingLongStepMatcher matcher) {
 		return trie.search(matcher).map(RankedEntry::entity);
 	}
 
+	/**
+	 * The results of a search with a {@link CaseAwareRegex}, of which the first one
+	 * is already taken to know whether there are case sensitive matches. These
+	 * rank above all case insensitive ones, which can therefore be dropped by
+	 * ending the results at the first case mismatch.
+	 */
+	private static final class CaseAwareResults<T extends SearchableEntity> {
+
+		private final CaseAwareRegex matcher;
+		private final Iterator<GradedValue<RankedEntry<T>>> results;
+		private final GradedValue<RankedEntry<T>> first;
+
+		CaseAwareResults(RankedTrie<RankedEntry<T>> trie, CaseAwareRegex matcher) {
+			this.matcher = matcher;
+			this.results = trie.searchGraded(matcher).iterator();
+			this.first = results.hasNext() ? results.next() : null;
+		}
+
+		boolean hasCaseSensitiveMatch() {
+			return first != null && !matcher.isCaseMismatch(first.grade());
+		}
+
+		Stream<T> stream(boolean caseSensitiveOnly) {
+			if (first == null)
+				return Stream.of();
+			var gradedValues = Stream.concat(Stream.of(first), GroupedSearchResult.iteratorToStream(results));
+			if (caseSensitiveOnly)
+				gradedValues = gradedValues.takeWhile(gradedValue -> !matcher.isCaseMismatch(gradedValue.grade()));
+			return gradedValues.map(gradedValue -> gradedValue.value().entity());
+		}
+	}
+
+	/**
+	 * Searches case insensitively with one edit for every
+	 * {@value #QUERY_LENGTH_PER_EDIT} chars of the query, and at most
+	 * {@value FuzzyRegex#MAX_EDITS}. The search is stopped after
+	 * {@value #FUZZY_STEP_BUDGET} steps, so its results may be incomplete. The
+	 * case insensitive regex of the query is the one the search already compiled.
+	 */
+	private static <T extends SearchableEntity> Stream<T> searchFuzzy(RankedTrie<RankedEntry<T>> trie,
+			String normalizedQuery, CompiledRegex caseInsensitive) {
+		int maxEdits = Math.min(normalizedQuery.length() / QUERY_LENGTH_PER_EDIT, FuzzyRegex.MAX_EDITS);
+		if (maxEdits == 0 || !FuzzyRegex.isCompatible(caseInsensitive))
+			return Stream.of();
+		return trie.search(new FuzzyRegex(caseInsensitive, maxEdits), FUZZY_STEP_BUDGET).map(RankedEntry::entity);
+	}
+
 	static final class SearchableEntityRankingFunction<T extends SearchableEntity>
-			implements RankingFunction<RankedEntry<T>> {
+			implements SeparableRankingFunction<RankedEntry<T>> {
 
 		@SuppressWarnings("rawtypes")
 		private static final SearchableEntityRankingFunction INSTANCE = new SearchableEntityRankingFunction<>();
@@ -114,8 +447,13 @@ public final class RankedTrieSearchEngine extends IndexBasedSearchEngine {
 		}
 
 		@Override
-		public double rank(RankedEntry<T> rankedEntry, double searchGrade) {
-			return rankedEntry.rank() + searchGrade;
+		public double entryRank(RankedEntry<T> rankedEntry) {
+			return rankedEntry.rank();
+		}
+
+		@Override
+		public double rank(double entryRank, double searchGrade) {
+			return entryRank + searchGrade;
 		}
 
 		@Override
@@ -1,8 +1,11 @@
 package net.maisikoleni.javadoc.search;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.PriorityQueue;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -115,6 +118,18 @@ public final class RegexSearchEngine extends IndexBasedSearchEngine {
 		}
 	}
 
+	record PositionedMatch<T extends SearchableEntity> (Match<T> match, int position)
+			implements Comparable<PositionedMatch<T>> {
+
+		@Override
+		public int compareTo(PositionedMatch<T> o) {
+			var matchComparison = match.compareTo(o.match);
+			if (matchComparison != 0)
+				return matchComparison;
+			return Integer.compare(position, o.position);
+		}
+	}
+
 	@Override
 	public Stream<SearchableEntity> search(String query) {
 		if (query == null || query.isBlank())
@@ -122,6 +137,13 @@ public final class RegexSearchEngine extends IndexBasedSearchEngine {
 		return searchIn(streamOfAll(), compileQueryPattern(query));
 	}
 
+	@Override
+	public Stream<SearchableEntity> search(String query, int limit) {
+		if (query == null || query.isBlank())
+			return Stream.of();
+		return searchIn(streamOfAll(), compileQueryPattern(query), limit);
+	}
+
 	@Override
 	public GroupedSearchResult searchGroupedByType(String query) {
 		if (query == null || query.isBlank())
@@ -132,12 +154,52 @@ public final class RegexSearchEngine extends IndexBasedSearchEngine {
 				searchIn(members.stream(), queryPattern), searchIn(tags.stream(), queryPattern));
 	}
 
+	@Override
+	public GroupedSearchResult searchGroupedByType(String query, int limitPerGroup) {
+		if (query == null || query.isBlank())
+			return GroupedSearchResult.empty();
+		Pattern queryPattern = compileQueryPattern(query);
+		return new GroupedSearchResult(searchIn(modules.stream(), queryPattern, limitPerGroup),
+				searchIn(packages.stream(), queryPattern, limitPerGroup),
+				searchIn(types.stream(), queryPattern, limitPerGroup),
+				searchIn(members.stream(), queryPattern, limitPerGroup),
+				searchIn(tags.stream(), queryPattern, limitPerGroup));
+	}
+
 	private static <T extends SearchableEntity> Stream<T> searchIn(Stream<MatchableEntity<T>> entitiyIndex,
 			Pattern queryPattern) {
 		return entitiyIndex.map(x -> x.matchAndRank(queryPattern)).filter(Optional::isPresent).map(Optional::get)
 				.sorted().map(Match::entity);
 	}
 
+	/**
+	 * Same as {@link #searchIn(Stream, Pattern)}, but only keeps the best
+	 * <code>limit</code> matches in a bounded heap instead of sorting all of them.
+	 * The position in the index is used as tie breaker to be consistent with the
+	 * stable sort.
+	 */
+	private static <T extends SearchableEntity> Stream<T> searchIn(Stream<MatchableEntity<T>> entitiyIndex,
+			Pattern queryPattern, int limit) {
+		if (limit < 0)
+			throw new IllegalArgumentException(Integer.toString(limit));
+		if (limit == 0)
+			return Stream.of();
+		// reversed to have the worst match on top
+		var bestMatches = new PriorityQueue<PositionedMatch<T>>(limit + 1, Comparator.reverseOrder());
+		var iterator = entitiyIndex.iterator();
+		for (int position = 0; iterator.hasNext(); position++) {
+			var match = iterator.next().matchAndRank(queryPattern);
+			if (match.isEmpty())
+				continue;
+			bestMatches.add(new PositionedMatch<>(match.get(), position));
+			if (bestMatches.size() > limit)
+				bestMatches.poll();
+		}
+		var sortedMatches = new ArrayList<>(bestMatches);
+		sortedMatches.sort(null);
+		return sortedMatches.stream().map(positionedMatch -> positionedMatch.match().entity());
+	}
+
 	public static Pattern compileQueryPattern(String query) {
 		String pattern = assembleQueryPatternString(query);
 		return Pattern.compile(pattern);
@@ -8,5 +8,22 @@ public interface SearchEngine {
 
 	Stream<SearchableEntity> search(String query);
 
+	/**
+	 * Returns the first <code>limit</code> results of {@link #search(String)}.
+	 * Implementations should use the limit to skip work for results that are not
+	 * needed.
+	 */
+	default Stream<SearchableEntity> search(String query, int limit) {
+		return search(query).limit(limit);
+	}
+
 	GroupedSearchResult searchGroupedByType(String query);
+
+	/**
+	 * Returns the first <code>limitPerGroup</code> results of each group of
+	 * {@link #searchGroupedByType(String)}.
+	 */
+	default GroupedSearchResult searchGroupedByType(String query, int limitPerGroup) {
+		return searchGroupedByType(query).limit(limitPerGroup);
+	}
 }
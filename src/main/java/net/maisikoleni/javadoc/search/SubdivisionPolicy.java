@@ -0,0 +1,30 @@
+package net.maisikoleni.javadoc.search;
+
+/**
+ * Limits the suffixes of an entity name that {@link TrieGenerator} inserts as
+ * additional keys. The complete name is always inserted.
+ * <p>
+ * Suffixes start at segment boundaries like <code>.</code> or <code>/</code>
+ * with rank 2.5 and at other word starts like camel case humps or underscores
+ * with rank 1.25. If the number of suffixes is limited, the last ones are
+ * kept, as they are the most specific parts of the qualified name.
+ *
+ * @param maxSuffixes    the maximum number of suffixes inserted per entity
+ * @param minSuffixRank  the minimum rank of an inserted suffix
+ * @param parameterLists whether suffixes starting in the parameter list of a
+ *                       method are inserted
+ */
+public record SubdivisionPolicy(int maxSuffixes, double minSuffixRank, boolean parameterLists) {
+
+	/**
+	 * Inserts all suffixes.
+	 */
+	public static final SubdivisionPolicy ALL = new SubdivisionPolicy(Integer.MAX_VALUE, 0.0, true);
+
+	public SubdivisionPolicy {
+		if (maxSuffixes < 0)
+			throw new IllegalArgumentException("maxSuffixes must not be negative");
+		if (!(minSuffixRank >= 0.0))
+			throw new IllegalArgumentException("minSuffixRank must not be negative");
+	}
+}
@@ -2,7 +2,11 @@ package net.maisikoleni.javadoc.search;
 
 import static net.maisikoleni.javadoc.search.TrieSearchEngineUtils.*;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Supplier;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import org.slf4j.Logger;
@@ -12,27 +16,48 @@ import net.maisikoleni.javadoc.entities.SearchableEntity;
 import net.maisikoleni.javadoc.util.Cache;
 import net.maisikoleni.javadoc.util.WeakCommonPool;
 import net.maisikoleni.javadoc.util.regex.CharClass;
+import net.maisikoleni.javadoc.util.regex.CharTable;
 import net.maisikoleni.javadoc.util.regex.Regex;
 import net.maisikoleni.javadoc.util.trie.Trie;
+import net.maisikoleni.javadoc.util.trie.TrieEntry;
 
 public class TrieGenerator {
 
 	private static final Logger LOG = LoggerFactory.getLogger(TrieGenerator.class);
 
-	private static final Regex REGEX_DIVIDER = new CharClass(c -> c == '.' || c == '/',
+	private static final Regex REGEX_DIVIDER = new CharClass(CharTable.of(c -> c == '.' || c == '/'),
 			"[" + SEPARATOR_CHAR_CLASS + "]");
-	private static final Regex REGEX_START_AFTER = new CharClass(c -> isSeparator(c) || c == '_' || c == ' ',
-			"[" + SEPARATOR_CHAR_CLASS + "_ ]");
+	private static final Regex REGEX_START_AFTER = new CharClass(
+			CharTable.of(c -> isSeparator(c) || c == '_' || c == ' '), "[" + SEPARATOR_CHAR_CLASS + "_ ]");
 	private static final Regex REGEX_START_BEFORE = new CharClass(
-			c -> isSeparator(c) || Character.isUpperCase(c) || c == '_',
+			CharTable.of(c -> isSeparator(c) || Character.isUpperCase(c) || c == '_'),
 			"[" + SEPARATOR_CHAR_CLASS + "_\\p{javaUpperCase}]");
 
 	private final boolean parallel;
+	private final boolean freeze;
+	private final Construction construction;
+	private final SubdivisionPolicy subdivisionPolicy;
 	private Trie.CompressionCache cache;
 	private final WeakCommonPool pool;
 
 	public TrieGenerator(boolean parallel) {
+		this(parallel, true);
+	}
+
+	public TrieGenerator(boolean parallel, boolean freeze) {
+		this(parallel, freeze, Construction.INCREMENTAL);
+	}
+
+	public TrieGenerator(boolean parallel, boolean freeze, Construction construction) {
+		this(parallel, freeze, construction, SubdivisionPolicy.ALL);
+	}
+
+	public TrieGenerator(boolean parallel, boolean freeze, Construction construction,
+			SubdivisionPolicy subdivisionPolicy) {
 		this.parallel = parallel;
+		this.freeze = freeze;
+		this.construction = Objects.requireNonNull(construction);
+		this.subdivisionPolicy = Objects.requireNonNull(subdivisionPolicy);
 		this.cache = newCache();
 		if (parallel)
 			pool = WeakCommonPool.get();
@@ -46,53 +71,189 @@ public class TrieGenerator {
 		return new Trie.CompressionCache(Cache::newDefault);
 	}
 
+	/**
+	 * Drops all nodes, value sets and key segments that were cached for sharing
+	 * them between the generated tries. Frozen tries do not refer to the cache, so
+	 * it only needs to be kept while more tries are generated that can share
+	 * these. Otherwise, it keeps all intermediate nodes reachable.
+	 */
 	public final void clearCache() {
+		LOG.info("Clearing compression cache (nodes: {}, value sets: {}, key segments: {})", cache.nodes().size(),
+				cache.valueSets().size(), cache.keySegments().size());
 		cache = newCache();
 	}
 
+	public final SubdivisionPolicy subdivisionPolicy() {
+		return subdivisionPolicy;
+	}
+
+	/**
+	 * Returns the number of keys that the {@link SubdivisionPolicy} of this
+	 * generator produces for the entities, without creating a trie.
+	 */
+	public final long countKeys(Stream<? extends SearchableEntity> index) {
+		return index.mapToLong(se -> {
+			long[] keyCount = { 0 };
+			subdivideEntity(se, subdivisionPolicy, (name, entity, rank) -> keyCount[0]++);
+			return keyCount[0];
+		}).sum();
+	}
+
+	/**
+	 * How the keys of the entities are inserted into the trie.
+	 */
+	public enum Construction {
+		/**
+		 * Inserts the keys one after another into the same trie.
+		 */
+		INCREMENTAL,
+		/**
+		 * Inserts the keys of each first character into a separate trie without
+		 * sharing it between threads, and merges these tries before compression.
+		 */
+		PARTITIONED,
+		/**
+		 * Collects and sorts all keys to create each node only once, and
+		 * compresses each subtree as soon as it is complete, see
+		 * {@link Trie#load(List, Trie.CompressionCache)}.
+		 */
+		SORTED
+	}
+
 	public final <S extends SearchableEntity, R, T extends Trie<R>> T generateTrie(Stream<S> index,
 			Supplier<T> trieSupplier, SubdividedEntityFunction<S, R> converter) {
 		if (index.isParallel() != parallel)
 			LOG.warn("TrieGenerator parallelism does not match index stream");
 		if (index.isParallel() && !parallel)
 			throw new IllegalArgumentException("index stream must not be parallel for non-parallel TrieGenerator");
-		Supplier<T> createTrie = () -> generateTrieDirectly(index, trieSupplier, converter);
+		return inPool(() -> switch (construction) {
+		case INCREMENTAL -> generateTrieDirectly(index, trieSupplier, converter);
+		case PARTITIONED -> generateTriePartitioned(index, trieSupplier, converter);
+		case SORTED -> generateTrieSorted(index, trieSupplier, converter);
+		});
+	}
+
+	/**
+	 * Merges the tries into a new one, which is compressed and frozen like the
+	 * generated ones. The tries are copied and can still be used afterwards.
+	 */
+	public final <R, T extends Trie<R>> T mergeTries(Supplier<T> trieSupplier,
+			List<? extends Trie<? extends R>> tries) {
+		return inPool(() -> {
+			T trie = trieSupplier.get();
+			long t1 = System.currentTimeMillis();
+			for (var source : tries)
+				trie.merge(source);
+			long t2 = System.currentTimeMillis();
+			LOG.info("Merging {} tries took {} ms (trie: {})", tries.size(), t2 - t1, trie.getClass().getSimpleName());
+			return compressAndFreeze(trie);
+		});
+	}
+
+	private <T> T inPool(Supplier<T> task) {
 		if (parallel) {
 			@SuppressWarnings("resource")
-			var trieTask = pool.forkJoinPool().submit(createTrie::get);
+			var trieTask = pool.forkJoinPool().submit(task::get);
 			return trieTask.join();
 		}
-		return createTrie.get();
+		return task.get();
 	}
 
 	private <S extends SearchableEntity, T extends Trie<R>, R> T generateTrieDirectly(Stream<S> index,
 			Supplier<T> trieSupplier, SubdividedEntityFunction<S, R> converter) {
 		T trie = trieSupplier.get();
 		var trieName = trie.getClass().getSimpleName();
-		SubdividedEntityConsumer<S> addRanked = (name, entity, rank) -> trie.insert(name,
-				converter.apply(name, entity, rank));
+		var keyCount = new LongAdder();
+		SubdividedEntityConsumer<S> addRanked = (name, entity, rank) -> {
+			trie.insert(name, converter.apply(name, entity, rank));
+			keyCount.increment();
+		};
+		long t1 = System.currentTimeMillis();
+		index.forEach(se -> subdivideEntity(se, subdivisionPolicy, addRanked));
+		long t2 = System.currentTimeMillis();
+		LOG.info("Constructing trie took {} ms (trie: {}, parallel: {}, keys: {})", t2 - t1, trieName, parallel,
+				keyCount.sum());
+		return compressAndFreeze(trie);
+	}
+
+	private <S extends SearchableEntity, T extends Trie<R>, R> T generateTriePartitioned(Stream<S> index,
+			Supplier<T> trieSupplier, SubdividedEntityFunction<S, R> converter) {
+		T trie = trieSupplier.get();
+		var trieName = trie.getClass().getSimpleName();
 		long t1 = System.currentTimeMillis();
-		index.forEach(se -> subdivideEntity(se, addRanked));
+		// keys with different first characters never share a node below the root
+		var partitions = entries(index, converter, subdivisionPolicy)
+				.collect(Collectors.groupingBy(entry -> entry.key().isEmpty() ? -1 : entry.key().charAt(0)));
+		var partitionStream = partitions.values().stream();
+		if (parallel)
+			partitionStream = partitionStream.parallel();
+		var partitionTries = partitionStream.map(entries -> {
+			T partitionTrie = trieSupplier.get();
+			for (var entry : entries)
+				partitionTrie.insert(entry.key(), entry.value());
+			return partitionTrie;
+		}).toList();
+		for (var partitionTrie : partitionTries)
+			trie.merge(partitionTrie);
+		long t2 = System.currentTimeMillis();
+		LOG.info("Constructing trie took {} ms (trie: {}, parallel: {}, partitions: {}, keys: {})", t2 - t1,
+				trieName, parallel, partitionTries.size(), partitions.values().stream().mapToInt(List::size).sum());
+		return compressAndFreeze(trie);
+	}
+
+	private <S extends SearchableEntity, T extends Trie<R>, R> T generateTrieSorted(Stream<S> index,
+			Supplier<T> trieSupplier, SubdividedEntityFunction<S, R> converter) {
+		T trie = trieSupplier.get();
+		var trieName = trie.getClass().getSimpleName();
+		long t1 = System.currentTimeMillis();
+		var entries = entries(index, converter, subdivisionPolicy).toList();
+		trie.load(entries, cache);
+		long t2 = System.currentTimeMillis();
+		LOG.info("Constructing trie took {} ms (trie: {}, parallel: {}, keys: {})", t2 - t1, trieName, parallel,
+				entries.size());
+		return compressAndFreeze(trie);
+	}
+
+	private static <S extends SearchableEntity, R> Stream<TrieEntry<R>> entries(Stream<S> index,
+			SubdividedEntityFunction<S, R> converter, SubdivisionPolicy policy) {
+		return index.mapMulti((se, downstream) -> subdivideEntity(se, policy,
+				(name, entity, rank) -> downstream.accept(new TrieEntry<>(name, converter.apply(name, entity, rank)))));
+	}
+
+	private <T extends Trie<?>> T compressAndFreeze(T trie) {
+		var trieName = trie.getClass().getSimpleName();
 		long t2 = System.currentTimeMillis();
-		LOG.info("Constructing trie took {} ms (trie: {}, parallel: {})", t2 - t1, trieName, parallel);
 		trie.compress(cache);
 		long t3 = System.currentTimeMillis();
 		LOG.info("Compressing trie took {} ms (trie: {}, parallel: {})", t3 - t2, trieName, parallel);
+		if (freeze) {
+			trie.freeze();
+			long t4 = System.currentTimeMillis();
+			LOG.info("Freezing trie took {} ms (trie: {})", t4 - t3, trieName);
+		}
 		return trie;
 	}
 
-	static <T extends SearchableEntity> void subdivideEntity(T se, SubdividedEntityConsumer<T> consumer) {
+	static <T extends SearchableEntity> void subdivideEntity(T se, SubdivisionPolicy policy,
+			SubdividedEntityConsumer<T> consumer) {
 		var preProcessedName = TrieSearchEngineUtils.generateTrieName(se);
 		consumer.accept(preProcessedName, se, 3.0);
 		int length = preProcessedName.length();
-		for (int i = 1; i < length; i++) {
-			double rank = 0.0;
-			if (REGEX_DIVIDER.matches(preProcessedName, i - 1, i) || REGEX_DIVIDER.matches(preProcessedName, i, i + 1))
-				rank = 2.5;
-			else if (REGEX_START_AFTER.matches(preProcessedName, i - 1, i)
-					|| REGEX_START_BEFORE.matches(preProcessedName, i, i + 1))
-				rank = 1.25;
-			if (rank > 0.0) {
+		int suffixesEnd = policy.parameterLists() ? length : parameterListStart(preProcessedName);
+		int suffixesStart = 1;
+		if (policy.maxSuffixes() < suffixesEnd - 1) {
+			// keep the last suffixes, as they are the most specific ones
+			int suffixCount = 0;
+			suffixesStart = suffixesEnd;
+			while (suffixesStart > 1 && suffixCount < policy.maxSuffixes()) {
+				suffixesStart--;
+				if (isUsefulSuffix(preProcessedName, suffixesStart, policy))
+					suffixCount++;
+			}
+		}
+		for (int i = suffixesStart; i < suffixesEnd; i++) {
+			double rank = suffixRank(preProcessedName, i);
+			if (rank > 0.0 && rank >= policy.minSuffixRank()) {
 				var namePart = preProcessedName.subSequence(i, length);
 				if (TrieSearchEngineUtils.isUseful(namePart))
 					consumer.accept(namePart, se, rank);
@@ -100,6 +261,33 @@ public class TrieGenerator {
 		}
 	}
 
+	/**
+	 * Returns the rank of the suffix starting at the given index, or
+	 * <code>0.0</code> if no suffix starts there.
+	 */
+	private static double suffixRank(CharSequence name, int i) {
+		if (REGEX_DIVIDER.matches(name, i - 1, i) || REGEX_DIVIDER.matches(name, i, i + 1))
+			return 2.5;
+		if (REGEX_START_AFTER.matches(name, i - 1, i) || REGEX_START_BEFORE.matches(name, i, i + 1))
+			return 1.25;
+		return 0.0;
+	}
+
+	private static boolean isUsefulSuffix(CharSequence name, int i, SubdivisionPolicy policy) {
+		double rank = suffixRank(name, i);
+		return rank > 0.0 && rank >= policy.minSuffixRank()
+				&& TrieSearchEngineUtils.isUseful(name.subSequence(i, name.length()));
+	}
+
+	/**
+	 * Returns the index of the opening parenthesis of the parameter list, or the
+	 * length of the name if there is none.
+	 */
+	private static int parameterListStart(CharSequence trieName) {
+		int index = trieName.toString().indexOf('(');
+		return index < 0 ? trieName.length() : index;
+	}
+
 	@FunctionalInterface
 	private interface SubdividedEntityConsumer<T> {
 
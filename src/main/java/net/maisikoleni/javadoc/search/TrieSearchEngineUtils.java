@@ -10,6 +10,7 @@ import java.util.stream.Stream;
 
 import net.maisikoleni.javadoc.entities.SearchableEntity;
 import net.maisikoleni.javadoc.util.regex.CharClass;
+import net.maisikoleni.javadoc.util.regex.CharTable;
 import net.maisikoleni.javadoc.util.regex.Concatenation;
 import net.maisikoleni.javadoc.util.regex.Literal;
 import net.maisikoleni.javadoc.util.regex.Regex;
@@ -35,20 +36,24 @@ public final class TrieSearchEngineUtils {
 	private static final Pattern QUERY_WHITESPACE = Pattern.compile("\\s++");
 	private static final Pattern QUERY_UNECESSARY_SPACE = Pattern.compile(" \\B(?!~)|\\B(?<!~) ");
 
-	private static final Regex REGEX_WHITESPACE = new CharClass(caseIndependent(Character::isWhitespace), "\\s");
+	private static final CharTable LOWER_CASE = CharTable.of(caseIndependent(Character::isLowerCase));
+
+	private static final Regex REGEX_WHITESPACE = new CharClass(CharTable.of(caseIndependent(Character::isWhitespace)),
+			"\\s");
 	private static final Regex REGEX_ANY_WHITESPACE = new Star(REGEX_WHITESPACE);
-	private static final Regex REGEX_ANY_LOWER_CASE = new Star(
-			new CharClass(caseIndependent(Character::isLowerCase), "\\p{javaLowerCase}"));
+	private static final Regex REGEX_ANY_LOWER_CASE = new Star(new CharClass(LOWER_CASE, "\\p{javaLowerCase}"));
 	private static final Regex REGEX_OPTIONAL_DIVIDER = new Star(new Literal(SEGMENT_DIVIDER_STRING));
 	private static final Regex REGEX_DIVIDING_WHITESPACE = Concatenation.of(REGEX_OPTIONAL_DIVIDER,
-			new CharClass(caseIndependent(c -> c == '.' || c == '/' || Character.isWhitespace(c)), "[\\s/.]"));
-	private static final Regex REGEX_ANY_NON_DIVIDER = new Star(
-			new CharClass(caseIndependent(c -> c != SEGMENT_DIVIDER_CHAR), "[^" + SEGMENT_DIVIDER_CHAR + "]"));
+			new CharClass(CharTable.of(caseIndependent(c -> c == '.' || c == '/' || Character.isWhitespace(c))),
+					"[\\s/.]"));
+	private static final Regex REGEX_ANY_NON_DIVIDER = new Star(new CharClass(
+			CharTable.of(caseIndependent(c -> c != SEGMENT_DIVIDER_CHAR)), "[^" + SEGMENT_DIVIDER_CHAR + "]"));
 	private static final Regex NO_WHITESPACE_MARKER = new Concatenation();
 
 	private static final Regex REGEX_USEFUL_CHARS = Concatenation.of(
-			new Star(new CharClass(c -> !Character.isAlphabetic(c) && !Character.isDigit(c), "[^\\p{Alnum}]")),
-			new CharClass(c -> Character.isAlphabetic(c) || Character.isDigit(c), "[\\p{Alnum}]"),
+			new Star(new CharClass(CharTable.of(c -> !Character.isAlphabetic(c) && !Character.isDigit(c)),
+					"[^\\p{Alnum}]")),
+			new CharClass(CharTable.of(c -> Character.isAlphabetic(c) || Character.isDigit(c)), "[\\p{Alnum}]"),
 			new Star(CharClass.ANY));
 
 	private static final char[] SPEPARATOR_CHARS = { '.', ',', '(', ')', '<', '>', '/', '[', ']' };
@@ -72,13 +77,21 @@ public final class TrieSearchEngineUtils {
 	}
 
 	static Regex generateRegexFromQuery(String query) {
+		return generateRegex(normalizeQuery(query));
+	}
+
+	/**
+	 * Returns the query as it is passed to {@link #generateRegex(CharSequence)},
+	 * queries that only differ in irrelevant whitespace are equal afterwards.
+	 */
+	static String normalizeQuery(String query) {
 		if (query.indexOf(SEGMENT_DIVIDER_CHAR) >= 0)
 			throw new IllegalArgumentException("query must not contain the segment divider char");
-		var cleanQuery = preProcessEntry(query.strip());
+		var cleanQuery = preProcessEntry(query.strip()).toString();
 		// TODO: keep?
-		if (cleanQuery.toString().endsWith("^^"))
-			cleanQuery = cleanQuery.subSequence(0, cleanQuery.length() - 2).toString().toUpperCase(Locale.ROOT);
-		return generateRegex(cleanQuery);
+		if (cleanQuery.endsWith("^^"))
+			cleanQuery = cleanQuery.substring(0, cleanQuery.length() - 2).toUpperCase(Locale.ROOT);
+		return cleanQuery;
 	}
 
 	static CharSequence preProcessEntry(CharSequence query) {
@@ -122,8 +135,7 @@ public final class TrieSearchEngineUtils {
 		// allow skipping lower case chars with ~ and use the next as char class
 		Stream.of(SKIP_TO_CHAR.split(x)).map(Literal::new).collect(Concatenation.joining((prev, next) -> {
 			var nextChar = next.chars().charAt(0);
-			var charClass = new CharClass(caseIndependent(c -> c != nextChar && Character.isLowerCase(c)),
-					"[^" + nextChar + "]");
+			var charClass = new CharClass(LOWER_CASE.without(nextChar), "[^" + nextChar + "]");
 			return Concatenation.of(charClass, new Star(charClass));
 		}))).collect(Concatenation.joining(REGEX_ANY_LOWER_CASE));
 		downstream.accept(identifierRegex);
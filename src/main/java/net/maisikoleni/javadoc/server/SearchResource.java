@@ -44,9 +44,8 @@ public class SearchResource implements JavadocSearch {
 		var engine = searchSerivce.searchEngine();
 		var startTime = System.nanoTime();
 		try {
-			var results = engine.search(query);
-			return results.limit(count.orElse(DEFAULT_COUNT)).map(SearchableEntity::qualifiedName).map(Object::toString)
-					.toList();
+			var results = engine.search(query, count.orElse(DEFAULT_COUNT));
+			return results.map(SearchableEntity::qualifiedName).map(Object::toString).toList();
 		} finally {
 			searchReporter.logSearchTime("api/suggestions", query, startTime);
 		}
@@ -82,7 +82,7 @@ public final class JavadocSearchPage {
 	public TemplateInstance getSuggestionTable(String query) {
 		searchValidator.validateQuery(query);
 		var startTime = System.nanoTime();
-		var results = searchService.searchEngine().search(query).limit(config.suggestionCount()).toList();
+		var results = searchService.searchEngine().search(query, config.suggestionCount()).toList();
 		searchReporter.logSearchTime("html/suggestions", query, startTime);
 		return Templates.searchSuggestions(searchService.javadoc().baseUrl(), results);
 	}
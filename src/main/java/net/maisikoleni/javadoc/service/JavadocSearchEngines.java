@@ -1,20 +1,24 @@
 package net.maisikoleni.javadoc.service;
 
 import java.net.URI;
+import java.nio.file.Path;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.stream.Collectors;
 
 import net.maisikoleni.javadoc.config.Configuration;
 import net.maisikoleni.javadoc.config.Configuration.LibraryConfigValue;
+import net.maisikoleni.javadoc.config.Configuration.SubdivisionConfig;
 import net.maisikoleni.javadoc.db.JavadocIndexes;
 import net.maisikoleni.javadoc.entities.JavadocIndex;
 import net.maisikoleni.javadoc.search.RankedTrieSearchEngine;
 import net.maisikoleni.javadoc.search.SearchEngine;
+import net.maisikoleni.javadoc.search.SubdivisionPolicy;
+import net.maisikoleni.javadoc.search.TrieGenerator;
 
 import io.quarkus.runtime.Startup;
-import jakarta.annotation.PostConstruct;
 import jakarta.inject.Inject;
 import jakarta.inject.Singleton;
 
@@ -32,23 +36,53 @@ public class JavadocSearchEngines {
 		defaultLibraryId = extractDefaultLibraryId(libraries);
 		installedJavadocs = libraries.entrySet().stream()
 				.collect(Collectors.toMap(Entry::getKey, entry -> entryToJavadoc(entry, javadocIndexes)));
-		var commonGenerator = RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of();
+		var subdivisionPolicies = subdivisionPoliciesByBaseUrl(libraries);
+		// libraries with the same subdivision policy share a generator and its cache
+		var generators = new HashMap<SubdivisionPolicy, RankedTrieSearchEngine.RankedConcurrentTrieGenerator>();
+		var trieImagePath = configuration.db().trieImages() ? configuration.db().path().resolve("trie-images") : null;
 		record IndexWithBaseUrl(URI baseUrl, JavadocIndex index) {}
 		searchEngines = installedJavadocs.values().stream()
 				.map(javadoc -> new IndexWithBaseUrl(javadoc.baseUrl(), javadoc.index())).distinct()
 				.collect(Collectors.toMap(IndexWithBaseUrl::baseUrl,
-						indexWithBaseUrl -> new RankedTrieSearchEngine(indexWithBaseUrl.index(), commonGenerator)));
+						indexWithBaseUrl -> createSearchEngine(indexWithBaseUrl.baseUrl(), indexWithBaseUrl.index(),
+								generators.computeIfAbsent(subdivisionPolicies.get(indexWithBaseUrl.baseUrl()),
+										RankedTrieSearchEngine.RankedConcurrentTrieGenerator::of),
+								trieImagePath)));
+		// all libraries are generated, the cached nodes are not needed any longer
+		generators.values().forEach(TrieGenerator::clearCache);
 	}
 
-	@PostConstruct
-	@SuppressWarnings("static-method")
-	void cleanUpAfterInitialization() {
-		/*
-		 * It makes sense to suggest a JVM GC run here because many intermediate objects
-		 * from the search engine generation can be reclaimed, this reduces heap size
-		 * after startup to about 15 %.
-		 */
-		System.gc(); // $NOSONAR$
+	/**
+	 * Returns the subdivision policy for each base URL. All libraries with the same
+	 * base URL share one search engine and must therefore have the same policy.
+	 */
+	static Map<URI, SubdivisionPolicy> subdivisionPoliciesByBaseUrl(Map<String, LibraryConfigValue> libraries) {
+		var firstLibraryIds = new HashMap<URI, String>();
+		var subdivisionPolicies = new HashMap<URI, SubdivisionPolicy>();
+		libraries.entrySet().stream().sorted(Entry.comparingByKey()).forEach(entry -> {
+			var baseUrl = entry.getValue().baseUrl();
+			var subdivisionPolicy = subdivisionPolicy(entry.getValue().subdivision());
+			var firstSubdivisionPolicy = subdivisionPolicies.putIfAbsent(baseUrl, subdivisionPolicy);
+			firstLibraryIds.putIfAbsent(baseUrl, entry.getKey());
+			if (firstSubdivisionPolicy != null && !firstSubdivisionPolicy.equals(subdivisionPolicy))
+				throw new IllegalStateException("The libraries " + firstLibraryIds.get(baseUrl) + " and "
+						+ entry.getKey() + " have the same base URL " + baseUrl
+						+ " and must therefore be configured with the same subdivision");
+		});
+		return subdivisionPolicies;
+	}
+
+	private static SubdivisionPolicy subdivisionPolicy(SubdivisionConfig subdivisionConfig) {
+		return new SubdivisionPolicy(subdivisionConfig.maxSuffixes(), subdivisionConfig.minSuffixRank(),
+				subdivisionConfig.parameterLists());
+	}
+
+	private static SearchEngine createSearchEngine(URI baseUrl, JavadocIndex index,
+			RankedTrieSearchEngine.RankedConcurrentTrieGenerator generator, Path trieImagePath) {
+		if (trieImagePath == null)
+			return new RankedTrieSearchEngine(index, generator);
+		var imageFileName = baseUrl.toString().replaceAll("[^\\p{Alnum}.-]+", "_") + ".trie";
+		return RankedTrieSearchEngine.fromImageOrGenerate(index, generator, trieImagePath.resolve(imageFileName));
 	}
 
 	public Collection<Javadoc> allJavadocs() {
@@ -30,7 +30,7 @@ public class SearchService {
 	}
 
 	public URI getBestUrl(String query) {
-		var results = searchEngine().search(query);
+		var results = searchEngine().search(query, 1);
 		var baseUrl = javadoc().baseUrl();
 		try {
 			return results.findFirst().map(SearchableEntity::url).map(baseUrl::resolve).orElse(baseUrl);
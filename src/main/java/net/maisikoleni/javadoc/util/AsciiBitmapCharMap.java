@@ -0,0 +1,215 @@
+package net.maisikoleni.javadoc.util;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import net.maisikoleni.javadoc.util.regex.GradingLongStepMatcher;
+
+/**
+ * An immutable-key {@link CharMap} for wide nodes that stores the presence of
+ * ASCII keys in a 128 bit bitmap. The values of the ASCII keys are stored
+ * densely in key order and are found by counting the bits below the key, all
+ * other keys are stored in a {@link FixKeyedCharMap}.
+ * <p>
+ * Iteration order, {@link #hashCode()} and {@link #equals(Object)} are the same
+ * as for {@link FixKeyedCharMap}.
+ */
+public final class AsciiBitmapCharMap<V> implements CharMap<V> {
+
+	private static final int ASCII_LIMIT = 128;
+
+	/**
+	 * Maps with up to this many keys are searched fast enough by
+	 * {@link FixKeyedCharMap}.
+	 */
+	private static final int MIN_SIZE = 8;
+
+	private final long lowBits;
+	private final long highBits;
+	private final V[] asciiValues;
+	private final CharMap<V> others;
+
+	private AsciiBitmapCharMap(long lowBits, long highBits, V[] asciiValues, CharMap<V> others) {
+		this.lowBits = lowBits;
+		this.highBits = highBits;
+		this.asciiValues = asciiValues;
+		this.others = others;
+	}
+
+	@Override
+	public int size() {
+		return asciiValues.length + others.size();
+	}
+
+	private int find(char c) {
+		return indexOf(lowBits, highBits, c);
+	}
+
+	/**
+	 * Returns the index of the ASCII key in the dense value array, which is the
+	 * number of keys below it, or <code>-1</code> if the key is not present.
+	 */
+	private static int indexOf(long lowBits, long highBits, char c) {
+		// shifts only use the lowest six bits of c
+		long bit = 1L << c;
+		if (c < Long.SIZE)
+			return (lowBits & bit) == 0 ? -1 : Long.bitCount(lowBits & (bit - 1));
+		return (highBits & bit) == 0 ? -1 : Long.bitCount(lowBits) + Long.bitCount(highBits & (bit - 1));
+	}
+
+	@Override
+	public boolean containsKey(char c) {
+		if (c >= ASCII_LIMIT)
+			return others.containsKey(c);
+		return find(c) >= 0;
+	}
+
+	@Override
+	public V get(char c) {
+		if (c >= ASCII_LIMIT)
+			return others.get(c);
+		int index = find(c);
+		if (index < 0)
+			return null;
+		return asciiValues[index];
+	}
+
+	@Override
+	public V put(char c, V value) {
+		if (c >= ASCII_LIMIT)
+			return others.put(c, value);
+		int index = find(c);
+		if (index < 0)
+			throw new UnsupportedOperationException("insertion of new keys not allowed");
+		var old = asciiValues[index];
+		asciiValues[index] = Objects.requireNonNull(value);
+		return old;
+	}
+
+	private char[] asciiKeys() {
+		var keys = new char[asciiValues.length];
+		int i = 0;
+		for (long bits = lowBits; bits != 0; bits &= bits - 1)
+			keys[i++] = (char) Long.numberOfTrailingZeros(bits);
+		for (long bits = highBits; bits != 0; bits &= bits - 1)
+			keys[i++] = (char) (Long.SIZE + Long.numberOfTrailingZeros(bits));
+		return keys;
+	}
+
+	@Override
+	public void forEach(CharEntryConsumer<V> entryConsumer) {
+		int i = 0;
+		for (long bits = lowBits; bits != 0; bits &= bits - 1)
+			entryConsumer.accept((char) Long.numberOfTrailingZeros(bits), asciiValues[i++]);
+		for (long bits = highBits; bits != 0; bits &= bits - 1)
+			entryConsumer.accept((char) (Long.SIZE + Long.numberOfTrailingZeros(bits)), asciiValues[i++]);
+		others.forEach(entryConsumer);
+	}
+
+	@Override
+	public <C> boolean stepAllAndAdvanceWithContext(GradingLongStepMatcher matcher, long state,
+			MatchOperationWithContext<V, C> operation, C context) {
+		int requiredChar = matcher.requiredChar(state);
+		if (requiredChar >= 0) {
+			// no other key can match
+			var value = get((char) requiredChar);
+			if (value == null)
+				return false;
+			long stateAfterKey = matcher.step((char) requiredChar, state);
+			return matcher.isOk(stateAfterKey) && operation.apply(value, matcher, stateAfterKey, context);
+		}
+		var result = false;
+		int i = 0;
+		for (long bits = lowBits; bits != 0; bits &= bits - 1, i++) {
+			long stateAfterKey = matcher.step((char) Long.numberOfTrailingZeros(bits), state);
+			if (matcher.isOk(stateAfterKey))
+				result |= operation.apply(asciiValues[i], matcher, stateAfterKey, context);
+		}
+		for (long bits = highBits; bits != 0; bits &= bits - 1, i++) {
+			long stateAfterKey = matcher.step((char) (Long.SIZE + Long.numberOfTrailingZeros(bits)), state);
+			if (matcher.isOk(stateAfterKey))
+				result |= operation.apply(asciiValues[i], matcher, stateAfterKey, context);
+		}
+		if (others.size() != 0)
+			result |= others.stepAllAndAdvanceWithContext(matcher, state, operation, context);
+		return result;
+	}
+
+	/**
+	 * Returns whether the map has enough keys and mostly ASCII keys, so that an
+	 * {@link AsciiBitmapCharMap} is worth it.
+	 */
+	public static boolean isSuitable(CharMap<?> cm) {
+		if (cm instanceof AsciiBitmapCharMap<?>)
+			return true;
+		int size = cm.size();
+		if (size <= MIN_SIZE)
+			return false;
+		int[] asciiCount = { 0 };
+		cm.forEach((c, v) -> {
+			if (c < ASCII_LIMIT)
+				asciiCount[0]++;
+		});
+		return asciiCount[0] * 4 >= size * 3;
+	}
+
+	public static <V> CharMap<V> copyOf(CharMap<V> cm) {
+		if (cm instanceof AsciiBitmapCharMap<V>)
+			return cm;
+		long[] bits = new long[2];
+		cm.forEach((c, v) -> {
+			if (c < ASCII_LIMIT)
+				bits[c >>> 6] |= 1L << c;
+		});
+		V[] asciiValues = newValueArray(Long.bitCount(bits[0]) + Long.bitCount(bits[1]));
+		var others = new CharHashMap<V>();
+		cm.forEach((c, v) -> {
+			if (c < ASCII_LIMIT)
+				asciiValues[indexOf(bits[0], bits[1], c)] = Objects.requireNonNull(v);
+			else
+				others.put(c, v);
+		});
+		return new AsciiBitmapCharMap<>(bits[0], bits[1], asciiValues, FixKeyedCharMap.copyOf(others));
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = others.hashCode();
+		int i = 0;
+		for (long bits = lowBits; bits != 0; bits &= bits - 1)
+			hash += asciiValues[i++].hashCode() * 31 + Long.numberOfTrailingZeros(bits);
+		for (long bits = highBits; bits != 0; bits &= bits - 1)
+			hash += asciiValues[i++].hashCode() * 31 + Long.SIZE + Long.numberOfTrailingZeros(bits);
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof CharMap<?> cm))
+			return false;
+		if (size() != cm.size())
+			return false;
+		var keys = asciiKeys();
+		for (int i = 0; i < keys.length; i++) {
+			if (!asciiValues[i].equals(cm.get(keys[i])))
+				return false;
+		}
+		var othersEqual = new boolean[] { true };
+		others.forEach((c, v) -> othersEqual[0] &= v.equals(cm.get(c)));
+		return othersEqual[0];
+	}
+
+	@Override
+	public String toString() {
+		var result = new StringJoiner(", ", "{", "}");
+		forEach((c, v) -> result.add(c + "=" + v));
+		return result.toString();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V[] newValueArray(int size) {
+		return (V[]) new Object[size];
+	}
+}
@@ -0,0 +1,166 @@
+package net.maisikoleni.javadoc.util;
+
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import net.maisikoleni.javadoc.util.regex.GradingLongStepMatcher;
+
+/**
+ * A {@link CharMap} that uses open addressing with linear probing over a
+ * <code>char</code> and a value array, so neither keys are boxed nor entries
+ * allocated. <code>null</code> values are not supported, a <code>null</code>
+ * value marks a free slot.
+ * <p>
+ * {@link #hashCode()} and {@link #equals(Object)} are the same as for
+ * {@link FixKeyedCharMap}.
+ */
+public final class CharHashMap<V> implements CharMap<V> {
+
+	private static final int MIN_CAPACITY = 4;
+
+	private char[] keys;
+	private V[] values;
+	private int size;
+
+	public CharHashMap() {
+		this(2);
+	}
+
+	public CharHashMap(int expectedSize) {
+		int capacity = capacityFor(expectedSize);
+		keys = new char[capacity];
+		values = newValueArray(capacity);
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	private int find(char c) {
+		int mask = keys.length - 1;
+		for (int slot = hash(c) & mask;; slot = (slot + 1) & mask) {
+			if (values[slot] == null)
+				return -slot - 1;
+			if (keys[slot] == c)
+				return slot;
+		}
+	}
+
+	@Override
+	public boolean containsKey(char c) {
+		return find(c) >= 0;
+	}
+
+	@Override
+	public V get(char c) {
+		int slot = find(c);
+		if (slot < 0)
+			return null;
+		return values[slot];
+	}
+
+	@Override
+	public V put(char c, V value) {
+		Objects.requireNonNull(value);
+		int slot = find(c);
+		if (slot >= 0) {
+			var old = values[slot];
+			values[slot] = value;
+			return old;
+		}
+		if (2 * (size + 1) > keys.length) {
+			resize();
+			slot = find(c);
+		}
+		slot = -slot - 1;
+		keys[slot] = c;
+		values[slot] = value;
+		size++;
+		return null;
+	}
+
+	private void resize() {
+		var oldKeys = keys;
+		var oldValues = values;
+		keys = new char[oldKeys.length << 1];
+		values = newValueArray(oldKeys.length << 1);
+		int mask = keys.length - 1;
+		for (int oldSlot = 0; oldSlot < oldKeys.length; oldSlot++) {
+			if (oldValues[oldSlot] == null)
+				continue;
+			int slot = hash(oldKeys[oldSlot]) & mask;
+			while (values[slot] != null)
+				slot = (slot + 1) & mask;
+			keys[slot] = oldKeys[oldSlot];
+			values[slot] = oldValues[oldSlot];
+		}
+	}
+
+	@Override
+	public void forEach(CharEntryConsumer<V> entryConsumer) {
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (values[slot] != null)
+				entryConsumer.accept(keys[slot], values[slot]);
+		}
+	}
+
+	@Override
+	public <C> boolean stepAllAndAdvanceWithContext(GradingLongStepMatcher matcher, long state,
+			MatchOperationWithContext<V, C> operation, C context) {
+		var result = false;
+		for (int slot = 0; slot < keys.length; slot++) {
+			var value = values[slot];
+			if (value == null)
+				continue;
+			long stateAfterKey = matcher.step(keys[slot], state);
+			if (matcher.isOk(stateAfterKey))
+				result |= operation.apply(value, matcher, stateAfterKey, context);
+		}
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		int hash = 0;
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (values[slot] != null)
+				hash += values[slot].hashCode() * 31 + keys[slot];
+		}
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof CharMap<?> cm) || size != cm.size())
+			return false;
+		for (int slot = 0; slot < keys.length; slot++) {
+			if (values[slot] != null && !values[slot].equals(cm.get(keys[slot])))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		var result = new StringJoiner(", ", "{", "}");
+		forEach((c, v) -> result.add(c + "=" + v));
+		return result.toString();
+	}
+
+	static int capacityFor(int expectedSize) {
+		return Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, 2 * expectedSize) - 1) << 1);
+	}
+
+	static int hash(char c) {
+		int h = c * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <V> V[] newValueArray(int size) {
+		return (V[]) new Object[size];
+	}
+}
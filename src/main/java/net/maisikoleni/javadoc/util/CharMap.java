@@ -7,6 +7,14 @@ public interface CharMap<V> {
 	@SuppressWarnings("rawtypes")
 	CharMap EMPTY_MAP = EmptyCharMap.INSTANCE;
 
+	/**
+	 * Returns {@link #EMPTY_MAP} with the value type of the caller.
+	 */
+	@SuppressWarnings("unchecked")
+	static <V> CharMap<V> emptyMap() {
+		return EMPTY_MAP;
+	}
+
 	int size();
 
 	boolean containsKey(char c);
@@ -17,13 +25,9 @@ public interface CharMap<V> {
 
 	void forEach(CharEntryConsumer<V> entryConsumer);
 
-	void forEachParallel(CharEntryConsumer<V> entryConsumer);
-
 	<C> boolean stepAllAndAdvanceWithContext(GradingLongStepMatcher matcher, long state,
 			MatchOperationWithContext<V, C> operation, C context);
 
-	int hashCodeParallel();
-
 	@FunctionalInterface
 	interface CharEntryConsumer<V> {
 
@@ -0,0 +1,121 @@
+package net.maisikoleni.javadoc.util;
+
+import java.nio.CharBuffer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Finds a <code>char</code> in a sorted range of distinct keys.
+ * <p>
+ * Wide ranges are compared with all keys at once using the incubating Vector
+ * API, if the system property {@value #VECTOR_API_PROPERTY} is
+ * <code>true</code>, the module <code>jdk.incubator.vector</code> was added to
+ * the JVM with <code>--add-modules jdk.incubator.vector</code> and the
+ * application was built with the Maven profile <code>vector-api</code>.
+ * Otherwise, or if the keys are not backed by an array, a scalar search is
+ * used.
+ */
+public final class CharSearch {
+
+	private static final Logger LOG = LoggerFactory.getLogger(CharSearch.class);
+
+	public static final String VECTOR_API_PROPERTY = "net.maisikoleni.javadoc.vectorApi";
+
+	static final String VECTORIZED_SEARCH_CLASS = "net.maisikoleni.javadoc.util.VectorizedCharSearch";
+
+	/**
+	 * The search of the <code>vector-api</code> profile, or <code>null</code> if
+	 * the scalar search is used.
+	 */
+	static final RangeSearch VECTORIZED_SEARCH = loadVectorizedSearch();
+
+	private static final int LINEAR_SEARCH_THRESHOLD = 8;
+	private static final int VECTOR_SEARCH_THRESHOLD = 16;
+
+	private CharSearch() {
+	}
+
+	/**
+	 * Returns the index of the key in <code>[from,to)</code> or <code>-1</code>
+	 * if it is not present.
+	 */
+	public static int indexOf(char[] sortedKeys, int from, int to, char c) {
+		int length = to - from;
+		if (length <= LINEAR_SEARCH_THRESHOLD) {
+			for (int i = from; i < to; i++) {
+				if (sortedKeys[i] == c)
+					return i;
+			}
+			return -1;
+		}
+		if (VECTORIZED_SEARCH != null && length >= VECTOR_SEARCH_THRESHOLD)
+			return VECTORIZED_SEARCH.indexOf(sortedKeys, from, to, c);
+		return binarySearch(sortedKeys, from, to, c);
+	}
+
+	private static int binarySearch(char[] sortedKeys, int from, int to, char c) {
+		int low = from;
+		int high = to - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char midKey = sortedKeys[mid];
+			if (midKey < c)
+				low = mid + 1;
+			else if (midKey > c)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the index of the key in <code>[from,to)</code> of the buffer or
+	 * <code>-1</code> if it is not present. The indices are absolute.
+	 */
+	public static int indexOf(CharBuffer sortedKeys, int from, int to, char c) {
+		if (sortedKeys.hasArray()) {
+			int offset = sortedKeys.arrayOffset();
+			int index = indexOf(sortedKeys.array(), offset + from, offset + to, c);
+			return index < 0 ? -1 : index - offset;
+		}
+		int low = from;
+		int high = to - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			char midKey = sortedKeys.get(mid);
+			if (midKey < c)
+				low = mid + 1;
+			else if (midKey > c)
+				high = mid - 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	private static RangeSearch loadVectorizedSearch() {
+		if (!Boolean.getBoolean(VECTOR_API_PROPERTY))
+			return null;
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			LOG.warn("{} is set, but the module jdk.incubator.vector was not added", VECTOR_API_PROPERTY);
+			return null;
+		}
+		try {
+			return (RangeSearch) Class.forName(VECTORIZED_SEARCH_CLASS).getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			LOG.warn("{} is set, but the application was not built with the vector-api profile", VECTOR_API_PROPERTY);
+			return null;
+		}
+	}
+
+	/**
+	 * Finds a <code>char</code> in <code>[from,to)</code> of an array of sorted
+	 * keys, like {@link CharSearch#indexOf(char[], int, int, char)}.
+	 */
+	interface RangeSearch {
+
+		int indexOf(char[] sortedKeys, int from, int to, char c);
+	}
+}
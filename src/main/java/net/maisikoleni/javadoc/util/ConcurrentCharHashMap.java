@@ -0,0 +1,211 @@
+package net.maisikoleni.javadoc.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Objects;
+import java.util.StringJoiner;
+
+import net.maisikoleni.javadoc.util.regex.GradingLongStepMatcher;
+
+/**
+ * A {@link ConcurrentCharMap} that uses open addressing like
+ * {@link CharHashMap}.
+ * <p>
+ * Lookups and iteration do not lock. All modifications are synchronized on the
+ * map, which makes them atomic. A new entry is made visible by writing its
+ * value after its key, and a resize builds a new table that is published as a
+ * whole. Readers therefore see each entry either completely or not at all.
+ * <p>
+ * {@link #hashCode()} and {@link #equals(Object)} are the same as for
+ * {@link FixKeyedCharMap}.
+ */
+public final class ConcurrentCharHashMap<V> implements ConcurrentCharMap<V> {
+
+	private static final VarHandle VALUES = MethodHandles.arrayElementVarHandle(Object[].class);
+
+	private volatile Table table;
+	private volatile int size;
+
+	public ConcurrentCharHashMap() {
+		this(2);
+	}
+
+	public ConcurrentCharHashMap(int expectedSize) {
+		table = new Table(CharHashMap.capacityFor(expectedSize));
+	}
+
+	private static final class Table {
+
+		final char[] keys;
+		final Object[] values;
+
+		Table(int capacity) {
+			keys = new char[capacity];
+			values = new Object[capacity];
+		}
+
+		Object valueAt(int slot) {
+			return VALUES.getAcquire(values, slot);
+		}
+
+		/**
+		 * Returns the slot of the key, or <code>-slot - 1</code> of the free slot
+		 * where it would be inserted.
+		 */
+		int find(char c) {
+			int mask = keys.length - 1;
+			for (int slot = CharHashMap.hash(c) & mask;; slot = (slot + 1) & mask) {
+				// the value is written last, so the key is visible once the value is
+				if (valueAt(slot) == null)
+					return -slot - 1;
+				if (keys[slot] == c)
+					return slot;
+			}
+		}
+
+		void insert(int slot, char c, Object value) {
+			keys[slot] = c;
+			VALUES.setRelease(values, slot, value);
+		}
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public boolean containsKey(char c) {
+		return table.find(c) >= 0;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public V get(char c) {
+		var currentTable = table;
+		int slot = currentTable.find(c);
+		if (slot < 0)
+			return null;
+		return (V) currentTable.valueAt(slot);
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized V put(char c, V value) {
+		Objects.requireNonNull(value);
+		var currentTable = table;
+		int slot = currentTable.find(c);
+		if (slot < 0) {
+			insert(c, value);
+			return null;
+		}
+		var old = (V) currentTable.valueAt(slot);
+		VALUES.setRelease(currentTable.values, slot, value);
+		return old;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public synchronized V putIfAbsent(char c, V value) {
+		Objects.requireNonNull(value);
+		var currentTable = table;
+		int slot = currentTable.find(c);
+		if (slot >= 0)
+			return (V) currentTable.valueAt(slot);
+		insert(c, value);
+		return null;
+	}
+
+	@Override
+	public synchronized boolean replace(char c, V expectedValue, V newValue) {
+		Objects.requireNonNull(newValue);
+		var currentTable = table;
+		int slot = currentTable.find(c);
+		if (slot < 0 || currentTable.valueAt(slot) != expectedValue)
+			return false;
+		VALUES.setRelease(currentTable.values, slot, newValue);
+		return true;
+	}
+
+	/**
+	 * Inserts a new key, must only be called while holding the lock.
+	 */
+	private void insert(char c, Object value) {
+		var currentTable = table;
+		if (2 * (size + 1) > currentTable.keys.length) {
+			currentTable = resized(currentTable);
+			table = currentTable;
+		}
+		currentTable.insert(-currentTable.find(c) - 1, c, value);
+		size++;
+	}
+
+	private static Table resized(Table oldTable) {
+		var newTable = new Table(oldTable.keys.length << 1);
+		int mask = newTable.keys.length - 1;
+		for (int oldSlot = 0; oldSlot < oldTable.keys.length; oldSlot++) {
+			var value = oldTable.values[oldSlot];
+			if (value == null)
+				continue;
+			int slot = CharHashMap.hash(oldTable.keys[oldSlot]) & mask;
+			while (newTable.values[slot] != null)
+				slot = (slot + 1) & mask;
+			newTable.keys[slot] = oldTable.keys[oldSlot];
+			newTable.values[slot] = value;
+		}
+		return newTable;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public void forEach(CharEntryConsumer<V> entryConsumer) {
+		var currentTable = table;
+		for (int slot = 0; slot < currentTable.keys.length; slot++) {
+			var value = currentTable.valueAt(slot);
+			if (value != null)
+				entryConsumer.accept(currentTable.keys[slot], (V) value);
+		}
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <C> boolean stepAllAndAdvanceWithContext(GradingLongStepMatcher matcher, long state,
+			MatchOperationWithContext<V, C> operation, C context) {
+		var currentTable = table;
+		var result = false;
+		for (int slot = 0; slot < currentTable.keys.length; slot++) {
+			var value = currentTable.valueAt(slot);
+			if (value == null)
+				continue;
+			long stateAfterKey = matcher.step(currentTable.keys[slot], state);
+			if (matcher.isOk(stateAfterKey))
+				result |= operation.apply((V) value, matcher, stateAfterKey, context);
+		}
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		int[] hash = { 0 };
+		forEach((c, v) -> hash[0] += v.hashCode() * 31 + c);
+		return hash[0];
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (!(obj instanceof CharMap<?> cm) || size() != cm.size())
+			return false;
+		boolean[] equal = { true };
+		forEach((c, v) -> equal[0] &= v.equals(cm.get(c)));
+		return equal[0];
+	}
+
+	@Override
+	public String toString() {
+		var result = new StringJoiner(", ", "{", "}");
+		forEach((c, v) -> result.add(c + "=" + v));
+		return result.toString();
+	}
+}
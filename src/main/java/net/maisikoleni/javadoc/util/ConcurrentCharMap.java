@@ -0,0 +1,22 @@
+package net.maisikoleni.javadoc.util;
+
+/**
+ * A {@link CharMap} that supports atomic updates of single entries.
+ */
+public interface ConcurrentCharMap<V> extends CharMap<V> {
+
+	/**
+	 * Associates the value with the character if there is no mapping yet.
+	 *
+	 * @return the current value or <code>null</code> if the value was added
+	 */
+	V putIfAbsent(char c, V value);
+
+	/**
+	 * Replaces the value of the character only if it is currently mapped to the
+	 * expected value, compared by identity.
+	 *
+	 * @return <code>true</code> if the value was replaced
+	 */
+	boolean replace(char c, V expectedValue, V newValue);
+}
@@ -35,11 +35,6 @@ final class EmptyCharMap<T> implements CharMap<T> {
 		// do nothing
 	}
 
-	@Override
-	public void forEachParallel(CharEntryConsumer<T> entryConsumer) {
-		// do nothing
-	}
-
 	@Override
 	public <C> boolean stepAllAndAdvanceWithContext(GradingLongStepMatcher matcher, long state,
 			MatchOperationWithContext<T, C> operation, C context) {
@@ -51,11 +46,6 @@ final class EmptyCharMap<T> implements CharMap<T> {
 		return 0;
 	}
 
-	@Override
-	public int hashCodeParallel() {
-		return 0;
-	}
-
 	@Override
 	public boolean equals(Object obj) {
 		if (obj == this)
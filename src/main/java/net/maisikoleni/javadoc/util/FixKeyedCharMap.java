@@ -12,8 +12,6 @@ public class FixKeyedCharMap<V> implements CharMap<V> {
 	private static final int BITS_16 = 16;
 	private static final int BITS_16_MASK = (1 << BITS_16) - 1;
 
-	private static final int LINEAR_SEARCH_THRESHOLD = 8;
-
 	private final char[] keys;
 	private final V[] values;
 
@@ -28,14 +26,7 @@ public class FixKeyedCharMap<V> implements CharMap<V> {
 	}
 
 	private int find(char c) {
-		if (size() <= LINEAR_SEARCH_THRESHOLD) {
-			for (int i = 0; i < keys.length; i++) {
-				if (c == keys[i])
-					return i;
-			}
-			return -1;
-		}
-		return Arrays.binarySearch(keys, c);
+		return CharSearch.indexOf(keys, 0, keys.length, c);
 	}
 
 	@Override
@@ -68,14 +59,18 @@ public class FixKeyedCharMap<V> implements CharMap<V> {
 		}
 	}
 
-	@Override
-	public void forEachParallel(CharEntryConsumer<V> entryConsumer) {
-		IntStream.range(0, keys.length).parallel().forEach(i -> entryConsumer.accept(keys[i], values[i]));
-	}
-
 	@Override
 	public <C> boolean stepAllAndAdvanceWithContext(GradingLongStepMatcher matcher, long state,
 			MatchOperationWithContext<V, C> operation, C context) {
+		int requiredChar = matcher.requiredChar(state);
+		if (requiredChar >= 0) {
+			// no other key can match
+			int index = find((char) requiredChar);
+			if (index < 0)
+				return false;
+			long stateAfterKey = matcher.step(keys[index], state);
+			return matcher.isOk(stateAfterKey) && operation.apply(values[index], matcher, stateAfterKey, context);
+		}
 		var result = false;
 		for (int i = 0; i < values.length; i++) {
 			long stateAfterKey = matcher.step(keys[i], state);
@@ -85,22 +80,20 @@ public class FixKeyedCharMap<V> implements CharMap<V> {
 		return result;
 	}
 
-	@Override
-	public int hashCodeParallel() {
-		return IntStream.range(0, keys.length).parallel().map(i -> values[i].hashCode() * 31 + keys[i]).sum();
-	}
-
 	public static <V> CharMap<V> copyOf(CharMap<V> cm) {
+		if (cm instanceof FixKeyedCharMap<V>)
+			return cm;
 		int size = cm.size();
 		if (size == 0)
 			return CharMap.EMPTY_MAP;
 		assert size < 1 << BITS_16 : "Cannot create fix keyed map with 2^16 keys or more";
-		int[] indexedKeys = new int[size];
+		// long, so that keys with the highest bit set are sorted last
+		long[] indexedKeys = new long[size];
 		V[] unsortedValues = newValueArray(size);
 		Int index = new Int();
 		cm.forEach((c, v) -> {
 			int i = index.value;
-			indexedKeys[i] = (c << BITS_16) | i;
+			indexedKeys[i] = ((long) c << BITS_16) | i;
 			unsortedValues[i] = Objects.requireNonNull(v);
 			index.value++;
 		});
@@ -108,9 +101,25 @@ public class FixKeyedCharMap<V> implements CharMap<V> {
 		char[] keys = new char[size];
 		V[] values = newValueArray(size);
 		for (int i = 0; i < size; i++) {
-			int indexedKey = indexedKeys[i];
+			long indexedKey = indexedKeys[i];
 			keys[i] = (char) (indexedKey >>> BITS_16);
-			values[i] = unsortedValues[indexedKey & BITS_16_MASK];
+			values[i] = unsortedValues[(int) indexedKey & BITS_16_MASK];
+		}
+		return new FixKeyedCharMap<>(keys, values);
+	}
+
+	/**
+	 * Creates a map that uses the given arrays directly. The keys must be sorted
+	 * and distinct.
+	 */
+	public static <V> CharMap<V> ofSorted(char[] keys, V[] values) {
+		if (keys.length != values.length)
+			throw new IllegalArgumentException("keys and values must have the same length");
+		if (keys.length == 0)
+			return CharMap.emptyMap();
+		for (int i = 1; i < keys.length; i++) {
+			if (keys[i - 1] >= keys[i])
+				throw new IllegalArgumentException("keys must be sorted and distinct");
 		}
 		return new FixKeyedCharMap<>(keys, values);
 	}
@@ -0,0 +1,97 @@
+package net.maisikoleni.javadoc.util;
+
+/**
+ * A set of pairs of a non-negative <code>int</code> and an arbitrary
+ * <code>long</code> that uses open addressing with linear probing and does not
+ * box anything. Removal is not supported.
+ */
+public final class IntLongHashSet {
+
+	private static final int DEFAULT_CAPACITY = 64;
+	private static final float LOAD_FACTOR = 0.5f;
+
+	/**
+	 * The int component plus one, zero marks a free slot.
+	 */
+	private int[] ints;
+	private long[] longs;
+	private int size;
+	private int resizeThreshold;
+
+	public IntLongHashSet() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	public IntLongHashSet(int expectedSize) {
+		int capacity = Integer.highestOneBit(Math.max(DEFAULT_CAPACITY, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+		ints = new int[capacity];
+		longs = new long[capacity];
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+	}
+
+	/**
+	 * Adds the pair to this set.
+	 *
+	 * @return <code>true</code> if the pair was not already contained
+	 */
+	public boolean add(int i, long l) {
+		if (i < 0)
+			throw new IllegalArgumentException("int component must not be negative: " + i);
+		int mask = ints.length - 1;
+		for (int slot = hash(i, l) & mask;; slot = (slot + 1) & mask) {
+			int storedInt = ints[slot];
+			if (storedInt == 0) {
+				ints[slot] = i + 1;
+				longs[slot] = l;
+				if (++size > resizeThreshold)
+					resize();
+				return true;
+			}
+			if (storedInt == i + 1 && longs[slot] == l)
+				return false;
+		}
+	}
+
+	public boolean contains(int i, long l) {
+		if (i < 0)
+			return false;
+		int mask = ints.length - 1;
+		for (int slot = hash(i, l) & mask;; slot = (slot + 1) & mask) {
+			int storedInt = ints[slot];
+			if (storedInt == 0)
+				return false;
+			if (storedInt == i + 1 && longs[slot] == l)
+				return true;
+		}
+	}
+
+	public int size() {
+		return size;
+	}
+
+	private void resize() {
+		var oldInts = ints;
+		var oldLongs = longs;
+		int capacity = oldInts.length << 1;
+		int mask = capacity - 1;
+		ints = new int[capacity];
+		longs = new long[capacity];
+		resizeThreshold = (int) (capacity * LOAD_FACTOR);
+		for (int oldSlot = 0; oldSlot < oldInts.length; oldSlot++) {
+			int storedInt = oldInts[oldSlot];
+			if (storedInt == 0)
+				continue;
+			long storedLong = oldLongs[oldSlot];
+			int slot = hash(storedInt - 1, storedLong) & mask;
+			while (ints[slot] != 0)
+				slot = (slot + 1) & mask;
+			ints[slot] = storedInt;
+			longs[slot] = storedLong;
+		}
+	}
+
+	private static int hash(int i, long l) {
+		long h = (l ^ (l >>> 29) ^ ((long) i << 17) ^ i) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+}
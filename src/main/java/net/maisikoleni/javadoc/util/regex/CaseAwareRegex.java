@@ -0,0 +1,158 @@
+package net.maisikoleni.javadoc.util.regex;
+
+import static net.maisikoleni.javadoc.util.regex.CompiledRegex.NO_MATCH;
+
+/**
+ * Matches the case sensitive and the case insensitive version of a regex in a
+ * single pass, instead of trying the case insensitive one after the case
+ * sensitive one did not match anything.
+ * <p>
+ * The state contains the {@linkplain CompiledRegex#compactState(long) compact
+ * states} of both regexes, the case sensitive one in the lower 31 bits. A match
+ * of the case sensitive regex is graded like the case sensitive regex does. A
+ * match of only the case insensitive regex is graded like the case insensitive
+ * regex does, minus the case mismatch penalty. If the penalty is larger than
+ * the range of the ranks that can be added to the grades, all case sensitive
+ * matches rank above all others, and both keep their order among each other.
+ * The penalty must be larger than the highest grade of a regex, so the grades
+ * of such matches are negative and {@link #isCaseMismatch(double)} can tell
+ * them apart.
+ */
+public final class CaseAwareRegex implements GradingLongStepMatcher {
+
+	private static final int SUB_STATE_BITS = 31;
+	private static final long SUB_STATE_MASK = (1L << SUB_STATE_BITS) - 1;
+	/**
+	 * The compact sub-state of a regex that can no longer match.
+	 */
+	private static final int NO_SUB_MATCH = (int) SUB_STATE_MASK;
+
+	private final CompiledRegex caseSensitive;
+	private final CompiledRegex caseInsensitive;
+	private final double caseMismatchPenalty;
+
+	public CaseAwareRegex(CompiledRegex caseSensitive, CompiledRegex caseInsensitive, double caseMismatchPenalty) {
+		if (caseSensitive.isCaseInsensitive() || !caseInsensitive.isCaseInsensitive())
+			throw new IllegalArgumentException("regexes must be case sensitive and case insensitive");
+		if (!isCompatible(caseSensitive) || !isCompatible(caseInsensitive))
+			throw new IllegalArgumentException("regex has too many instructions");
+		if (!(caseMismatchPenalty > 1.0))
+			throw new IllegalArgumentException("caseMismatchPenalty must be larger than the highest grade 1.0");
+		this.caseSensitive = caseSensitive;
+		this.caseInsensitive = caseInsensitive;
+		this.caseMismatchPenalty = caseMismatchPenalty;
+	}
+
+	public static boolean isCompatible(CompiledRegex compiledRegex) {
+		return compiledRegex.instructionCount() <= CompiledRegex.MAX_COMPACT_INSTRUCTIONS;
+	}
+
+	@Override
+	public long getStartState() {
+		return state(caseSensitive.getStartState(), caseInsensitive.getStartState());
+	}
+
+	private static long state(long caseSensitiveState, long caseInsensitiveState) {
+		if (caseSensitiveState == NO_MATCH && caseInsensitiveState == NO_MATCH)
+			return NO_MATCH;
+		return subState(caseSensitiveState) | (subState(caseInsensitiveState) << SUB_STATE_BITS);
+	}
+
+	private static long subState(long state) {
+		return state == NO_MATCH ? NO_SUB_MATCH : CompiledRegex.compactState(state);
+	}
+
+	private static long caseSensitiveState(long state) {
+		return expandedSubState((int) (state & SUB_STATE_MASK));
+	}
+
+	private static long caseInsensitiveState(long state) {
+		return expandedSubState((int) (state >>> SUB_STATE_BITS));
+	}
+
+	private static long expandedSubState(int subState) {
+		return subState == NO_SUB_MATCH ? NO_MATCH : CompiledRegex.expandState(subState);
+	}
+
+	@Override
+	public long step(char c, long state) {
+		if (state == NO_MATCH)
+			return NO_MATCH;
+		return state(caseSensitive.step(c, caseSensitiveState(state)),
+				caseInsensitive.step(c, caseInsensitiveState(state)));
+	}
+
+	@Override
+	public int requiredChar(long state) {
+		long caseSensitiveState = caseSensitiveState(state);
+		long caseInsensitiveState = caseInsensitiveState(state);
+		if (caseInsensitiveState == NO_MATCH)
+			return caseSensitive.requiredChar(caseSensitiveState);
+		int requiredChar = caseInsensitive.requiredChar(caseInsensitiveState);
+		if (caseSensitiveState == NO_MATCH || requiredChar == caseSensitive.requiredChar(caseSensitiveState))
+			return requiredChar;
+		return -1;
+	}
+
+	@Override
+	public boolean matches(CharSequence s) {
+		return isMatch(stepThrough(s, getStartState(), 0, s.length()));
+	}
+
+	@Override
+	public long stepThrough(char[] chars, long startState, int start, int end) {
+		long state = startState;
+		for (int i = start; i < end; i++) {
+			state = step(chars[i], state);
+			if (state == NO_MATCH)
+				return NO_MATCH;
+		}
+		return state;
+	}
+
+	@Override
+	public boolean isMatch(long state) {
+		if (state == NO_MATCH)
+			return false;
+		return caseSensitive.isMatch(caseSensitiveState(state)) || caseInsensitive.isMatch(caseInsensitiveState(state));
+	}
+
+	@Override
+	public boolean isOk(long state) {
+		return state != NO_MATCH;
+	}
+
+	@Override
+	public double grade(long state) {
+		long caseSensitiveState = caseSensitiveState(state);
+		if (caseSensitive.isMatch(caseSensitiveState))
+			return caseSensitive.grade(caseSensitiveState);
+		return caseInsensitive.grade(caseInsensitiveState(state)) - caseMismatchPenalty;
+	}
+
+	/**
+	 * Returns whether the grade is the one of a match of only the case insensitive
+	 * regex.
+	 */
+	public boolean isCaseMismatch(double grade) {
+		return grade < 0.0;
+	}
+
+	@Override
+	public double maxGrade(long state) {
+		long caseSensitiveState = caseSensitiveState(state);
+		long caseInsensitiveState = caseInsensitiveState(state);
+		if (caseInsensitiveState == NO_MATCH)
+			return caseSensitive.maxGrade(caseSensitiveState);
+		double maxMismatchGrade = caseInsensitive.maxGrade(caseInsensitiveState) - caseMismatchPenalty;
+		if (caseSensitiveState == NO_MATCH)
+			return maxMismatchGrade;
+		return Math.max(caseSensitive.maxGrade(caseSensitiveState), maxMismatchGrade);
+	}
+
+	@Override
+	public String toString() {
+		return "CaseAwareRegex[caseSensitive=" + caseSensitive + ", caseInsensitive=" + caseInsensitive
+				+ ", caseMismatchPenalty=" + caseMismatchPenalty + "]";
+	}
+}
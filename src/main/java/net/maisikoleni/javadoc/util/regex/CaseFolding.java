@@ -0,0 +1,53 @@
+package net.maisikoleni.javadoc.util.regex;
+
+import java.util.function.IntUnaryOperator;
+
+/**
+ * Table based versions of {@link Character#toLowerCase(char)} and
+ * {@link Character#toUpperCase(char)}.
+ * <p>
+ * The tables store the difference between a char and its mapping in blocks of
+ * {@value #BLOCK_SIZE} chars. Most blocks have no case mappings at all and
+ * share a single block of zeros, so the tables only take a few kilobytes.
+ */
+final class CaseFolding {
+
+	private static final int BLOCK_SHIFT = 8;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+	private static final char[] IDENTITY_BLOCK = new char[BLOCK_SIZE];
+
+	private static final char[][] LOWER_CASE_DELTAS = deltas(Character::toLowerCase);
+	private static final char[][] UPPER_CASE_DELTAS = deltas(Character::toUpperCase);
+
+	private CaseFolding() {
+	}
+
+	static char toLowerCase(char c) {
+		return (char) (c + LOWER_CASE_DELTAS[c >>> BLOCK_SHIFT][c & BLOCK_MASK]);
+	}
+
+	static char toUpperCase(char c) {
+		return (char) (c + UPPER_CASE_DELTAS[c >>> BLOCK_SHIFT][c & BLOCK_MASK]);
+	}
+
+	static boolean equalsIgnoreCase(char a, char b) {
+		return toLowerCase(a) == toLowerCase(b) || toUpperCase(a) == toUpperCase(b);
+	}
+
+	private static char[][] deltas(IntUnaryOperator mapping) {
+		var deltas = new char[(Character.MAX_VALUE + 1) >>> BLOCK_SHIFT][];
+		for (int block = 0; block < deltas.length; block++) {
+			var blockDeltas = new char[BLOCK_SIZE];
+			boolean identity = true;
+			for (int i = 0; i < BLOCK_SIZE; i++) {
+				int c = (block << BLOCK_SHIFT) | i;
+				// the char versions of the mappings cast the results of the int versions
+				blockDeltas[i] = (char) ((char) mapping.applyAsInt(c) - c);
+				identity &= blockDeltas[i] == 0;
+			}
+			deltas[block] = identity ? IDENTITY_BLOCK : blockDeltas;
+		}
+		return deltas;
+	}
+}
@@ -4,7 +4,7 @@ import java.util.Objects;
 
 public record CharClass(CharPredicate predicate, String pattern) implements Regex {
 
-	public static final CharClass ANY = new CharClass(c -> true, ".");
+	public static final CharClass ANY = new CharClass(CharTable.of(c -> true), ".");
 
 	public CharClass {
 		Objects.requireNonNull(predicate);
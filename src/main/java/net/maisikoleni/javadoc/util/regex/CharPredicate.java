@@ -13,7 +13,7 @@ public interface CharPredicate extends Predicate<Character> {
 	}
 
 	default CharPredicate ignoreCase() {
-		return c -> test(Character.toLowerCase(c)) || test(Character.toUpperCase(c));
+		return c -> test(CaseFolding.toLowerCase(c)) || test(CaseFolding.toUpperCase(c));
 	}
 
 	static CharPredicate caseIndependent(CaseIndependentCharPredicate caseIndependentCharPredicate) {
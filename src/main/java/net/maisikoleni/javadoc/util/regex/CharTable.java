@@ -0,0 +1,104 @@
+package net.maisikoleni.javadoc.util.regex;
+
+import java.util.Arrays;
+
+/**
+ * A {@link CharPredicate} that looks up the result of another predicate in a
+ * bit set of all chars, so testing a char never calls the original predicate.
+ * <p>
+ * The bit set is split into blocks of {@value #BLOCK_SIZE} chars, blocks in
+ * which the predicate is <code>true</code> or <code>false</code> for all chars
+ * are shared. Tables are meant to be created once for constant predicates, as
+ * tabulating a predicate tests all chars. {@link #without(char)} derives a
+ * table cheaply. The table of {@link #ignoreCase()} is created when it is
+ * needed the first time.
+ */
+public final class CharTable implements CharPredicate {
+
+	private static final int BLOCK_SHIFT = 8;
+	private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+	private static final int WORD_SHIFT = 6;
+	private static final int WORD_MASK = BLOCK_SIZE / Long.SIZE - 1;
+	private static final int BLOCK_COUNT = (Character.MAX_VALUE + 1) >>> BLOCK_SHIFT;
+
+	private static final long[] NONE_BLOCK = new long[BLOCK_SIZE / Long.SIZE];
+	private static final long[] ALL_BLOCK = new long[BLOCK_SIZE / Long.SIZE];
+	static {
+		Arrays.fill(ALL_BLOCK, -1L);
+	}
+
+	private final long[][] blocks;
+	/**
+	 * The predicate that is tabulated for {@link #ignoreCase()}, or
+	 * <code>null</code> if the table is case independent.
+	 */
+	private final CharPredicate ignoreCaseSource;
+	private volatile CharTable ignoreCase;
+
+	private CharTable(long[][] blocks, CharPredicate ignoreCaseSource) {
+		this.blocks = blocks;
+		this.ignoreCaseSource = ignoreCaseSource;
+	}
+
+	/**
+	 * Tabulates the predicate. A predicate that is its own
+	 * {@link CharPredicate#ignoreCase()} results in a case independent table.
+	 */
+	public static CharTable of(CharPredicate predicate) {
+		if (predicate instanceof CharTable table)
+			return table;
+		var ignoreCase = predicate.ignoreCase();
+		return new CharTable(tabulate(predicate), ignoreCase == predicate ? null : ignoreCase);
+	}
+
+	private static long[][] tabulate(CharPredicate predicate) {
+		var blocks = new long[BLOCK_COUNT][];
+		for (int block = 0; block < BLOCK_COUNT; block++) {
+			var words = new long[BLOCK_SIZE / Long.SIZE];
+			for (int i = 0; i < BLOCK_SIZE; i++) {
+				if (predicate.test((char) ((block << BLOCK_SHIFT) | i)))
+					words[i >>> WORD_SHIFT] |= 1L << i;
+			}
+			if (Arrays.equals(words, NONE_BLOCK))
+				blocks[block] = NONE_BLOCK;
+			else if (Arrays.equals(words, ALL_BLOCK))
+				blocks[block] = ALL_BLOCK;
+			else
+				blocks[block] = words;
+		}
+		return blocks;
+	}
+
+	@Override
+	public boolean test(char c) {
+		return (blocks[c >>> BLOCK_SHIFT][(c >>> WORD_SHIFT) & WORD_MASK] & (1L << c)) != 0;
+	}
+
+	@Override
+	public CharTable ignoreCase() {
+		if (ignoreCaseSource == null)
+			return this;
+		var table = ignoreCase;
+		if (table == null)
+			ignoreCase = table = new CharTable(tabulate(ignoreCaseSource), null);
+		return table;
+	}
+
+	/**
+	 * Returns a table that is the same except that it is <code>false</code> for
+	 * the given char. Only the block of the char is copied, and a case independent
+	 * table results in a case independent one.
+	 */
+	public CharTable without(char excluded) {
+		if (!test(excluded))
+			return this;
+		var newBlocks = blocks.clone();
+		var block = newBlocks[excluded >>> BLOCK_SHIFT].clone();
+		block[(excluded >>> WORD_SHIFT) & WORD_MASK] &= ~(1L << excluded);
+		newBlocks[excluded >>> BLOCK_SHIFT] = block;
+		if (ignoreCaseSource == null)
+			return new CharTable(newBlocks, null);
+		CharPredicate withoutExcluded = c -> c != excluded && test(c);
+		return new CharTable(newBlocks, withoutExcluded.ignoreCase());
+	}
+}
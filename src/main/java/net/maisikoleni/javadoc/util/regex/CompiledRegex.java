@@ -34,6 +34,18 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 	private static final long STAR_MATCHED_MASK = 1L << STAR_MATCHED_OFFSET;
 	private static final long INSTRUCTION_MASK = 0x00_00_00_00_7F_FF_FF_FFL;
 
+	private static final int COMPACT_INSTRUCTION_BITS = 15;
+	private static final int COMPACT_INSTRUCTION_MASK = (1 << COMPACT_INSTRUCTION_BITS) - 1;
+	/**
+	 * The states of regexes with at most this many instructions can be
+	 * {@linkplain #compactState(long) compacted}, the compact states never have
+	 * all bits set.
+	 */
+	static final int MAX_COMPACT_INSTRUCTIONS = COMPACT_INSTRUCTION_MASK - 1;
+
+	private static final int MAX_BIT_PARALLEL_INSTRUCTIONS = Long.SIZE - 1;
+	private static final int ASCII_LIMIT = 128;
+
 	public static final long START_STATE = 0L;
 	public static final long NO_MATCH = -1L;
 
@@ -42,6 +54,15 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 	private final boolean caseInsensitive;
 	private final int matchEnd;
 	private final int starCount;
+	/**
+	 * The star instructions as bits, only if there are few enough instructions.
+	 */
+	private final long starMask;
+	/**
+	 * For each ASCII character the instructions that accept it as bits, or
+	 * <code>null</code> if there are too many instructions.
+	 */
+	private final long[] asciiAcceptMasks;
 
 	private CompiledRegex(CharPredicate[] charPredicates, int[] instructions, boolean caseInsensitive) {
 		this.instructions = instructions;
@@ -56,6 +77,64 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 			tempMatchEnd--;
 		this.matchEnd = tempMatchEnd;
 		this.starCount = (int) IntStream.of(instructions).filter(CompiledRegex::isStar).count();
+		if (instructions.length <= MAX_BIT_PARALLEL_INSTRUCTIONS) {
+			this.starMask = IntStream.range(0, instructions.length).filter(i -> isStar(instructions[i]))
+					.mapToLong(i -> 1L << i).reduce(0L, (a, b) -> a | b);
+			this.asciiAcceptMasks = createAsciiAcceptMasks();
+		} else {
+			this.starMask = 0L;
+			this.asciiAcceptMasks = null;
+		}
+	}
+
+	private long[] createAsciiAcceptMasks() {
+		var acceptMasks = new long[ASCII_LIMIT];
+		for (int i = 0; i < instructions.length; i++) {
+			for (char c = 0; c < ASCII_LIMIT; c++) {
+				if (accepts(instructions[i], c))
+					acceptMasks[c] |= 1L << i;
+			}
+		}
+		return acceptMasks;
+	}
+
+	private boolean accepts(int instruction, char c) {
+		int argument = instruction & ARG_MASK;
+		if ((instruction & CHAR_CLASS) == 0)
+			return charEquals((char) argument, c);
+		return charPredicates[argument].test(c);
+	}
+
+	/**
+	 * Returns the instructions that accept the character as bits, which requires
+	 * the regex to have at most {@value #MAX_BIT_PARALLEL_INSTRUCTIONS}
+	 * instructions.
+	 */
+	long acceptMask(char c) {
+		if (c < ASCII_LIMIT)
+			return asciiAcceptMasks[c];
+		long acceptMask = 0L;
+		for (int i = 0; i < instructions.length; i++) {
+			if (accepts(instructions[i], c))
+				acceptMask |= 1L << i;
+		}
+		return acceptMask;
+	}
+
+	/**
+	 * Returns the star instructions as bits, see {@link #acceptMask(char)}.
+	 */
+	long starMask() {
+		return starMask;
+	}
+
+	/**
+	 * Returns the literal instructions that are not part of a star as bits, see
+	 * {@link #acceptMask(char)}.
+	 */
+	long literalMask() {
+		return IntStream.range(0, instructions.length).filter(i -> (instructions[i] & OPCODE_MASK) == LITERAL)
+				.mapToLong(i -> 1L << i).reduce(0L, (a, b) -> a | b);
 	}
 
 	@Override
@@ -67,6 +146,10 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 		return caseInsensitive;
 	}
 
+	int instructionCount() {
+		return instructions.length;
+	}
+
 	private static boolean isStar(int instruction) {
 		return (instruction & ANY_STAR_MASK) != 0;
 	}
@@ -75,6 +158,8 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 	public long step(char c, long state) {
 		if (state == NO_MATCH)
 			return NO_MATCH;
+		if (c < ASCII_LIMIT && asciiAcceptMasks != null)
+			return stepBitParallel(asciiAcceptMasks[c], state);
 		long currentState = state;
 		for (int i = getInstructionIndex(currentState); i < instructions.length; i++) {
 			int instruction = instructions[i];
@@ -107,13 +192,49 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 		return NO_MATCH;
 	}
 
+	/**
+	 * Does the same as {@link #step(char, long)} for all instructions at once. The
+	 * character can be consumed by the stars from the current instruction on and
+	 * by the first non-star instruction after them, and the first of these that
+	 * accepts it is the one the step continues with. All stars before it are
+	 * skipped.
+	 */
+	private long stepBitParallel(long acceptMask, long state) {
+		int index = getInstructionIndex(state);
+		long nonStars = ~starMask & (-1L << index);
+		long nextNonStar = nonStars & -nonStars;
+		long accepting = acceptMask & (-1L << index) & ((nextNonStar << 1) - 1);
+		if (accepting == 0L)
+			return NO_MATCH;
+		int acceptingIndex = numberOfTrailingZeros(accepting);
+		long currentState = state;
+		if (acceptingIndex != index) // same as continueAfterStar for each skipped star
+			currentState = (state & ~STAR_MATCHED_MASK) + ((state & STAR_MATCHED_MASK) << 1) + acceptingIndex - index;
+		int starMatched = (int) (starMask >>> acceptingIndex) & 1;
+		return newState(currentState, 1 - starMatched, starMatched);
+	}
+
+	@Override
+	public int requiredChar(long state) {
+		int instructionIndex = getInstructionIndex(state);
+		if (state == NO_MATCH || instructionIndex >= instructions.length)
+			return -1;
+		int instruction = instructions[instructionIndex];
+		if ((instruction & OPCODE_MASK) != LITERAL)
+			return -1;
+		char literal = (char) (instruction & ARG_MASK);
+		if (caseInsensitive && (Character.isLetter(literal) || Character.toLowerCase(literal) != literal
+				|| Character.toUpperCase(literal) != literal))
+			return -1;
+		return literal;
+	}
+
 	private boolean charEquals(char a, char b) {
 		return a == b || (caseInsensitive && charEqualsIgnoreCase(a, b));
 	}
 
 	private static boolean charEqualsIgnoreCase(char a, char b) {
-		return Character.toLowerCase(a) == Character.toLowerCase(b)
-				|| Character.toUpperCase(a) == Character.toUpperCase(b);
+		return CaseFolding.equalsIgnoreCase(a, b);
 	}
 
 	private static int getInstructionIndex(long state) {
@@ -133,6 +254,22 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 		return ((state & ~STAR_MATCHED_MASK) | ((long) starMatched << STAR_MATCHED_OFFSET)) + instructionIndexIncrement;
 	}
 
+	/**
+	 * Packs a state other than {@link #NO_MATCH} into 31 bits, which requires the
+	 * regex to have at most {@value #MAX_COMPACT_INSTRUCTIONS} instructions.
+	 */
+	static int compactState(long state) {
+		return getInstructionIndex(state) //
+				| (int) ((state >>> STAR_MATCHED_OFFSET) & 1) << COMPACT_INSTRUCTION_BITS //
+				| (int) (state >>> MATCHED_STAR_COUNT_OFFSET) << (COMPACT_INSTRUCTION_BITS + 1);
+	}
+
+	static long expandState(int compactState) {
+		return (compactState & COMPACT_INSTRUCTION_MASK) //
+				| (long) ((compactState >>> COMPACT_INSTRUCTION_BITS) & 1) << STAR_MATCHED_OFFSET //
+				| (long) (compactState >>> (COMPACT_INSTRUCTION_BITS + 1)) << MATCHED_STAR_COUNT_OFFSET;
+	}
+
 	@Override
 	public boolean matches(CharSequence s) {
 		long resultState = stepThrough(s, START_STATE);
@@ -140,10 +277,10 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 	}
 
 	@Override
-	public long stepThrough(CharSequence s, long startState, int start, int end) {
+	public long stepThrough(char[] chars, long startState, int start, int end) {
 		long state = startState;
 		for (int i = start; i < end; i++) {
-			state = step(s.charAt(i), state);
+			state = step(chars[i], state);
 			if (state == NO_MATCH)
 				return NO_MATCH;
 		}
@@ -169,6 +306,15 @@ public final class CompiledRegex implements GradingLongStepMatcher {
 		return (double) getEmptyStarCount(state) / starCount;
 	}
 
+	/**
+	 * The number of empty stars can only decrease with further steps, so the
+	 * current grade is the best one reachable.
+	 */
+	@Override
+	public double maxGrade(long state) {
+		return grade(state);
+	}
+
 	public int getEmptyStarCount(long state) {
 		return starCount - (int) (((state & MATCHED_STAR_COUNT_MASK) >>> MATCHED_STAR_COUNT_OFFSET)
 				+ ((state >>> STAR_MATCHED_OFFSET) & 1));
@@ -0,0 +1,191 @@
+package net.maisikoleni.javadoc.util.regex;
+
+import static net.maisikoleni.javadoc.util.regex.CompiledRegex.NO_MATCH;
+
+/**
+ * Matches a {@link CompiledRegex} with up to {@value #MAX_EDITS} edits of its
+ * literal instructions, like a Levenshtein automaton. An edit substitutes the
+ * literal with another char, deletes the literal or inserts a char before it.
+ * <p>
+ * Other than the compiled regex, all ways through the instructions are followed
+ * at once. The state contains the least number of edits with which each
+ * instruction index was reached, as two bits per index. The lower 32 bits hold
+ * the low bits and the upper 32 bits the high bits of those numbers, and an
+ * index that was not reached has the number <code>3</code>. The grade only
+ * depends on the number of edits of a match, and matches without edits have the
+ * grade <code>1.0</code>.
+ */
+public final class FuzzyRegex implements GradingLongStepMatcher {
+
+	public static final int MAX_EDITS = 2;
+	/**
+	 * All instruction indices including the one after the last instruction must
+	 * fit into the 32 bits of a number.
+	 */
+	static final int MAX_INSTRUCTIONS = Integer.SIZE - 1;
+
+	private final CompiledRegex compiledRegex;
+	private final int maxEdits;
+	private final long starMask;
+	private final long literalMask;
+	private final long indexMask;
+	private final long matchMask;
+	private final long startState;
+
+	public FuzzyRegex(CompiledRegex compiledRegex, int maxEdits) {
+		if (!isCompatible(compiledRegex))
+			throw new IllegalArgumentException("regex has too many instructions");
+		if (maxEdits < 0 || maxEdits > MAX_EDITS)
+			throw new IllegalArgumentException("maxEdits must be between 0 and " + MAX_EDITS);
+		this.compiledRegex = compiledRegex;
+		this.maxEdits = maxEdits;
+		this.starMask = compiledRegex.starMask();
+		this.literalMask = compiledRegex.literalMask();
+		this.matchMask = 1L << compiledRegex.instructionCount();
+		this.indexMask = (matchMask << 1) - 1;
+		this.startState = state(1L, 1L, 1L);
+	}
+
+	public static boolean isCompatible(CompiledRegex compiledRegex) {
+		return compiledRegex.instructionCount() <= MAX_INSTRUCTIONS;
+	}
+
+	public int getMaxEdits() {
+		return maxEdits;
+	}
+
+	@Override
+	public long getStartState() {
+		return startState;
+	}
+
+	/**
+	 * Creates the state from the instruction indices that were reached with at
+	 * most zero, one and two edits, after following all stars that can be skipped
+	 * and literals that can be deleted.
+	 */
+	private long state(long reached0, long reached1, long reached2) {
+		long closed0 = skipStars(reached0);
+		long closed1 = maxEdits < 1 ? closed0 : skipStars(reached1 | deleteLiterals(closed0));
+		long closed2 = maxEdits < 2 ? closed1 : skipStars(reached2 | deleteLiterals(closed1));
+		if (closed2 == 0L)
+			return NO_MATCH;
+		long lowBits = (closed1 & ~closed0) | (~closed2 & indexMask);
+		long highBits = ~closed1 & indexMask;
+		return lowBits | (highBits << Integer.SIZE);
+	}
+
+	/**
+	 * Adds the indices after each run of stars that contains a reached index, the
+	 * carry of the addition runs from the reached index to the end of the run.
+	 */
+	private long skipStars(long reached) {
+		return reached | (((reached & starMask) + starMask) ^ starMask);
+	}
+
+	private long deleteLiterals(long reached) {
+		return reached | ((reached & literalMask) << 1);
+	}
+
+	private long reachedWithoutEdits(long state) {
+		return ~(state | (state >>> Integer.SIZE)) & indexMask;
+	}
+
+	private long reachedWithOneEdit(long state) {
+		return ~(state >>> Integer.SIZE) & indexMask;
+	}
+
+	private long reachedWithTwoEdits(long state) {
+		return ~(state & (state >>> Integer.SIZE)) & indexMask;
+	}
+
+	@Override
+	public long step(char c, long state) {
+		if (state == NO_MATCH)
+			return NO_MATCH;
+		long acceptMask = compiledRegex.acceptMask(c);
+		long reached0 = reachedWithoutEdits(state);
+		long reached1 = reachedWithOneEdit(state);
+		return state(accept(reached0, acceptMask), accept(reached1, acceptMask) | editLiterals(reached0),
+				accept(reachedWithTwoEdits(state), acceptMask) | editLiterals(reached1));
+	}
+
+	/**
+	 * Stars that accept the char stay at their index, the other instructions
+	 * continue with the next one.
+	 */
+	private long accept(long reached, long acceptMask) {
+		long accepting = reached & acceptMask;
+		return (accepting & starMask) | ((accepting & ~starMask) << 1);
+	}
+
+	/**
+	 * Inserts the char before reached literals or substitutes them with it.
+	 */
+	private long editLiterals(long reached) {
+		long literals = reached & literalMask;
+		return literals | (literals << 1);
+	}
+
+	@Override
+	public boolean matches(CharSequence s) {
+		return isMatch(stepThrough(s, startState, 0, s.length()));
+	}
+
+	@Override
+	public long stepThrough(char[] chars, long startState, int start, int end) {
+		long state = startState;
+		for (int i = start; i < end; i++) {
+			state = step(chars[i], state);
+			if (state == NO_MATCH)
+				return NO_MATCH;
+		}
+		return state;
+	}
+
+	@Override
+	public boolean isMatch(long state) {
+		if (state == NO_MATCH)
+			return false;
+		return (reachedWithTwoEdits(state) & matchMask) != 0;
+	}
+
+	@Override
+	public boolean isOk(long state) {
+		return state != NO_MATCH;
+	}
+
+	/**
+	 * Returns the number of edits of the match in the given state.
+	 */
+	public int getEdits(long state) {
+		return edits(state, matchMask);
+	}
+
+	private int edits(long state, long indices) {
+		if ((reachedWithoutEdits(state) & indices) != 0)
+			return 0;
+		if ((reachedWithOneEdit(state) & indices) != 0)
+			return 1;
+		return 2;
+	}
+
+	@Override
+	public double grade(long state) {
+		return 1.0 - (double) getEdits(state) / (maxEdits + 1);
+	}
+
+	/**
+	 * The number of edits can only increase with further steps, so the grade of
+	 * the least edits in the state is the best one reachable.
+	 */
+	@Override
+	public double maxGrade(long state) {
+		return 1.0 - (double) edits(state, indexMask) / (maxEdits + 1);
+	}
+
+	@Override
+	public String toString() {
+		return "FuzzyRegex[compiledRegex=" + compiledRegex + ", maxEdits=" + maxEdits + "]";
+	}
+}
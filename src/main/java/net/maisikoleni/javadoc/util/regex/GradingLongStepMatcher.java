@@ -17,7 +17,8 @@ public interface GradingLongStepMatcher extends LongStepMatcher {
 	 * Grades the given state.
 	 * <p>
 	 * The grade is a value between <code>0.0</code> and <code>1.0</code>. A higher
-	 * value corresponds to a better grade.
+	 * value corresponds to a better grade. Matchers that grade some matches below
+	 * all others, like {@link CaseAwareRegex}, can return lower values.
 	 *
 	 * @param state the state to check. Must originate from this
 	 *              {@link GradingLongStepMatcher} instance.
@@ -25,4 +26,21 @@ public interface GradingLongStepMatcher extends LongStepMatcher {
 	 *         inclusive)
 	 */
 	double grade(long state);
+
+	/**
+	 * Returns an upper bound for the {@linkplain #grade(long) grade} of all states
+	 * that can be reached from the given state, including the state itself.
+	 * <p>
+	 * The default implementation returns <code>1.0</code>, which is always
+	 * correct but does not allow to skip anything.
+	 *
+	 * @param state the state to check. Must originate from this
+	 *              {@link GradingLongStepMatcher} instance and be
+	 *              {@linkplain #isOk(long) OK}.
+	 * @return a double value between <code>0.0</code> and <code>1.0</code> (both
+	 *         inclusive)
+	 */
+	default double maxGrade(long state) {
+		return 1.0;
+	}
 }
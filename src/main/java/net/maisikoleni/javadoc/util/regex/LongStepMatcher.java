@@ -1,5 +1,8 @@
 package net.maisikoleni.javadoc.util.regex;
 
+import java.nio.CharBuffer;
+import java.util.Objects;
+
 /**
  * A matcher for character sequences that operates in steps and stores all its
  * state in a single <code>long</code> value that is transparent to the user.
@@ -60,11 +63,33 @@ public interface LongStepMatcher {
 	 */
 	long step(char c, long state);
 
+	/**
+	 * Returns the only character for which {@link #step(char, long)} can return
+	 * an {@linkplain #isOk(long) OK} state, if there is such a character. This
+	 * allows to look up a single transition instead of trying all of them.
+	 * <p>
+	 * The default implementation returns <code>-1</code>, which is always
+	 * correct.
+	 *
+	 * @param state the current state, must be {@linkplain #isOk(long) OK}
+	 * @return the character or <code>-1</code> if more than one character could
+	 *         be accepted or this is not known
+	 */
+	default int requiredChar(long state) {
+		return -1;
+	}
+
 	/**
 	 * Advances the step matcher by <code>end-start</code> steps, consuming the
 	 * characters of the given {@link CharSequence} in the interval
 	 * <code>[start,end)</code>.
 	 *
+	 * <p>
+	 * The default implementation steps over the backing array of heap
+	 * {@link CharBuffer}s directly with
+	 * {@link #stepThrough(char[], long, int, int)}, and over all other character
+	 * sequences with {@link #step(char, long)}.
+	 *
 	 * @param cs    the {@link CharSequence} to use as a character source
 	 * @param state the current state
 	 * @param start the start index in <code>cs</code>, inclusive
@@ -72,7 +97,31 @@ public interface LongStepMatcher {
 	 * @return the new state after the characters got matched (or couldn't get
 	 *         matched)
 	 */
-	long stepThrough(CharSequence cs, long state, int start, int end);
+	default long stepThrough(CharSequence cs, long state, int start, int end) {
+		if (cs instanceof CharBuffer arena && arena.hasArray()) {
+			Objects.checkFromToIndex(start, end, arena.length());
+			int offset = arena.arrayOffset() + arena.position();
+			return stepThrough(arena.array(), state, offset + start, offset + end);
+		}
+		long result = state;
+		for (int i = start; i < end && isOk(result); i++)
+			result = step(cs.charAt(i), result);
+		return result;
+	}
+
+	/**
+	 * Advances the step matcher by <code>end-start</code> steps, consuming the
+	 * characters of the given array in the interval <code>[start,end)</code>.
+	 *
+	 * @param chars the array to use as a character source
+	 * @param state the current state
+	 * @param start the start index in <code>chars</code>, inclusive
+	 * @param end   the end index in <code>chars</code>, exclusive
+	 * @return the new state after the characters got matched (or couldn't get
+	 *         matched)
+	 * @see #stepThrough(CharSequence, long, int, int)
+	 */
+	long stepThrough(char[] chars, long state, int start, int end);
 
 	/**
 	 * Starts the step matcher and advances it by the number of steps equivalent to
@@ -1,17 +1,24 @@
 package net.maisikoleni.javadoc.util.trie;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.List;
 import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Set;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.function.IntConsumer;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import net.maisikoleni.javadoc.util.AsciiBitmapCharMap;
 import net.maisikoleni.javadoc.util.Cache;
 import net.maisikoleni.javadoc.util.CharMap;
-import net.maisikoleni.javadoc.util.CharMap.CharEntryConsumer;
 import net.maisikoleni.javadoc.util.FixKeyedCharMap;
 import net.maisikoleni.javadoc.util.SingleElementSet;
 import net.maisikoleni.javadoc.util.regex.GradingLongStepMatcher;
@@ -24,8 +31,10 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 	protected static final CharMap EMPTY_MAP = CharMap.EMPTY_MAP;
 
 	protected final AbstractTypeFactory<T> factory;
-	protected final N root;
+	protected N root;
 	protected boolean mutable = true;
+	private boolean compressed;
+	private FrozenTrie<T> frozen;
 
 	protected AbstractTrie(N root, AbstractTypeFactory<T> factory) {
 		this.factory = Objects.requireNonNull(factory);
@@ -110,6 +119,54 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 			}
 		}
 
+		/**
+		 * Merges the other node, which starts at the same index of the key, into
+		 * this one. Nodes of the other trie are moved into this trie.
+		 */
+		protected void merge(N other, AbstractTypeFactory<T> factory) {
+			int commonLength = commonPrefixLength(chars, other.chars);
+			splitIfNecessary(commonLength, factory);
+			if (commonLength == other.charCount()) {
+				addValues(other.values, factory);
+				other.transitions.forEach((c, otherNode) -> mergeTransition(c, otherNode, factory));
+			} else {
+				// the other node continues behind this one
+				var transitionChar = other.chars.charAt(commonLength);
+				other.chars = other.chars.subSequence(commonLength + 1, other.charCount());
+				mergeTransition(transitionChar, other, factory);
+			}
+		}
+
+		private static int commonPrefixLength(CharSequence a, CharSequence b) {
+			int maxLength = Math.min(a.length(), b.length());
+			int i = 0;
+			while (i < maxLength && a.charAt(i) == b.charAt(i))
+				i++;
+			return i;
+		}
+
+		private void mergeTransition(char character, N otherNode, AbstractTypeFactory<T> factory) {
+			if (transitions == CharMap.EMPTY_MAP)
+				transitions = factory.newTransitionMap();
+			var node = transitions.get(character);
+			if (node == null)
+				transitions.put(character, otherNode);
+			else
+				node.merge(otherNode, factory);
+		}
+
+		private void addValues(Set<T> otherValues, AbstractTypeFactory<T> factory) {
+			if (otherValues.isEmpty())
+				return;
+			if (values == EMPTY_SET) {
+				values = otherValues;
+			} else {
+				if (values.size() == 1)
+					values = factory.newValueSet(values);
+				values.addAll(otherValues);
+			}
+		}
+
 		public boolean search(GradingLongStepMatcher matcher, long startState,
 				Consumer<GradedValueSet<T>> resultConsumer) {
 			long result = matcher.stepThrough(chars, startState);
@@ -127,50 +184,37 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 			return hasMatch || childrenMatched;
 		}
 
-		protected void compress(CompressionCache cache) {
-			cacheSelf(cache.nodes());
-			chars = cache.keySegments().getOrCache(chars);
-			values = cache.<T>valueSets().getOrCache(values);
-			// template methods to allow for parallel computation
-			forEachTransition((c, node) -> {
-				var nodeInCache = cache.<N>nodes().getOrCache(node);
-				if (node != nodeInCache)
-					updateTransitionTarget(c, nodeInCache);
-				else
-					node.compress(cache);
-			});
-		}
-
-		protected final void compressTransitions() {
-			transitions = FixKeyedCharMap.copyOf(transitions);
-			forEachTransition((c, node) -> node.compressTransitions());
-		}
-
-		protected abstract void cacheSelf(Cache<N> nodeCache);
-
-		protected void forEachTransition(CharEntryConsumer<N> action) {
-			transitions.forEach(action);
+		/**
+		 * Compresses the subtree bottom-up and returns the cached node equal to this
+		 * one. All children are already replaced by their cached nodes when this node
+		 * is looked up, so the hash code only needs the cached hash codes of the
+		 * children and equal children are compared by identity first.
+		 */
+		protected final N compress(CompressionCache cache) {
+			compressTransitions();
+			transitions.forEach((c, node) -> replaceTransitionTarget(c, node, node.compress(cache)));
+			return compressSelf(cache);
 		}
 
-		protected void updateTransitionTarget(char character, N newValue) {
-			transitions.put(character, newValue);
-		}
-
-		protected void startRead() {
-			// subclasses can override
+		final void compressTransitions() {
+			if (AsciiBitmapCharMap.isSuitable(transitions))
+				transitions = AsciiBitmapCharMap.copyOf(transitions);
+			else
+				transitions = FixKeyedCharMap.copyOf(transitions);
 		}
 
-		protected void endRead() {
-			// subclasses can override
+		final void replaceTransitionTarget(char character, N node, N nodeInCache) {
+			if (node != nodeInCache)
+				transitions.put(character, nodeInCache);
 		}
 
-		protected void startWrite() {
-			// subclasses can override
+		final N compressSelf(CompressionCache cache) {
+			chars = cache.keySegments().getOrCache(chars);
+			values = cache.<T>valueSets().getOrCache(values);
+			return getOrCacheSelf(cache.nodes());
 		}
 
-		protected void endWrite() {
-			// subclasses can override
-		}
+		protected abstract N getOrCacheSelf(Cache<N> nodeCache);
 
 		@Override
 		public final int hashCode() {
@@ -197,21 +241,16 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 
 		@Override
 		public final String toString() {
-			startRead();
-			try {
-				var result = new StringBuilder();
-				result.append(getClass().getSimpleName());
-				result.append("[\"");
-				result.append(chars);
-				result.append("\"] values: ");
-				result.append(values);
-				result.append('\n');
-				transitions.forEach((c, node) -> result
-						.append(node.toString().indent(8).replaceFirst(" ".repeat(7), " '" + c + "' ->")));
-				return result.toString();
-			} finally {
-				endRead();
-			}
+			var result = new StringBuilder();
+			result.append(getClass().getSimpleName());
+			result.append("[\"");
+			result.append(chars);
+			result.append("\"] values: ");
+			result.append(values);
+			result.append('\n');
+			transitions.forEach((c, node) -> result
+					.append(node.toString().indent(8).replaceFirst(" ".repeat(7), " '" + c + "' ->")));
+			return result.toString();
 		}
 	}
 
@@ -236,7 +275,7 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 		}
 	}
 
-	protected record GradedValueSet<T> (Set<T> values, double grade) implements Comparable<GradedValueSet<T>> {
+	protected record GradedValueSet<T> (Collection<T> values, double grade) implements Comparable<GradedValueSet<T>> {
 
 		protected GradedValueSet {
 			Objects.requireNonNull(values);
@@ -268,14 +307,25 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 
 	@Override
 	public Stream<T> search(CharSequence key) {
+		if (frozen != null)
+			return frozen.search(key);
 		return findNode(key, false).switchOnSuccess(N::valueStream, () -> Stream.of());
 	}
 
 	@Override
 	public Stream<T> search(GradingLongStepMatcher matcher) {
+		if (frozen != null)
+			return frozen.search(matcher);
 		var results = new PriorityQueue<GradedValueSet<T>>();
 		root.search(matcher, matcher.getStartState(), results::add);
-		return results.stream().map(GradedValueSet::values).flatMap(Set::stream).distinct();
+		return results.stream().map(GradedValueSet::values).flatMap(Collection::stream).distinct();
+	}
+
+	final void search(GradingLongStepMatcher matcher, Consumer<GradedValueSet<T>> resultConsumer) {
+		if (frozen != null)
+			frozen.search(matcher, resultConsumer);
+		else
+			root.search(matcher, matcher.getStartState(), resultConsumer);
 	}
 
 	@Override
@@ -285,19 +335,250 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 		findNode(key, true).insert(key, value, factory);
 	}
 
+	@Override
+	public void merge(Trie<? extends T> other) {
+		if (!mutable)
+			throw new IllegalStateException("Trie is immutable");
+		if (other == this)
+			throw new IllegalArgumentException("Trie cannot be merged with itself");
+		if (other instanceof AbstractTrie<?, ?> otherTrie && otherTrie.mutable && otherTrie.getClass() == getClass()) {
+			@SuppressWarnings("unchecked")
+			var source = (AbstractTrie<T, N>) otherTrie;
+			root.merge(source.root, factory);
+			source.root = source.root.newNode();
+		} else {
+			FrozenTrie<? extends T> source;
+			if (other instanceof AbstractTrie<? extends T, ?> otherTrie)
+				source = otherTrie.toFrozenTrie();
+			else
+				source = other.freeze();
+			root.merge(copyOf(source, FrozenTrie.ROOT), factory);
+		}
+	}
+
+	/**
+	 * Creates mutable nodes for the subtree of the frozen node, shared frozen nodes
+	 * are copied for each of their occurrences.
+	 */
+	private N copyOf(FrozenTrie<? extends T> source, int sourceNode) {
+		var node = root.newNode();
+		node.chars = source.segmentOf(sourceNode);
+		var values = source.valuesOf(sourceNode);
+		if (values.size() == 1) {
+			node.values = SingleElementSet.<T>of(values.get(0));
+		} else if (!values.isEmpty()) {
+			node.values = factory.newValueSet();
+			node.values.addAll(values);
+		}
+		int transitionsStart = source.transitionsStart(sourceNode);
+		int transitionsEnd = source.transitionsEnd(sourceNode);
+		if (transitionsStart < transitionsEnd) {
+			node.transitions = factory.newTransitionMap();
+			for (int t = transitionsStart; t < transitionsEnd; t++)
+				node.transitions.put(source.transitionKey(t), copyOf(source, source.transitionTarget(t)));
+		}
+		return node;
+	}
+
+	@Override
+	public void load(List<? extends TrieEntry<? extends T>> entries) {
+		load(entries, null);
+	}
+
+	@Override
+	public void load(List<? extends TrieEntry<? extends T>> entries, CompressionCache compressionCache) {
+		if (!mutable)
+			throw new IllegalStateException("Trie is immutable");
+		if (root.values != EMPTY_SET || root.transitions.size() != 0)
+			throw new IllegalStateException("Trie must be empty");
+		@SuppressWarnings("unchecked")
+		TrieEntry<? extends T>[] sortedEntries = entries.toArray(TrieEntry[]::new);
+		Arrays.parallelSort(sortedEntries, TrieEntry.KEY_ORDER);
+		mutable = false;
+		root = loadNode(sortedEntries, 0, sortedEntries.length, 0, true, compressionCache);
+		compressed = compressionCache != null;
+	}
+
+	/**
+	 * Creates the node for the sorted entries in the given range, which all share
+	 * the key up to the given depth. The root never has a key segment. If a cache
+	 * is given, the node is compressed and the cached node is returned instead.
+	 */
+	private N loadNode(TrieEntry<? extends T>[] entries, int from, int to, int depth, boolean isRoot,
+			CompressionCache compressionCache) {
+		var node = root.newNode();
+		int segmentEnd = depth;
+		if (!isRoot && from < to) {
+			// the common prefix of the first and last key is shared by all keys between
+			var first = entries[from].key();
+			var last = entries[to - 1].key();
+			int maxLength = Math.min(first.length(), last.length());
+			while (segmentEnd < maxLength && first.charAt(segmentEnd) == last.charAt(segmentEnd))
+				segmentEnd++;
+			node.chars = first.subSequence(depth, segmentEnd);
+		}
+		// keys that end here are sorted before all longer ones
+		int valuesEnd = from;
+		while (valuesEnd < to && entries[valuesEnd].key().length() == segmentEnd)
+			valuesEnd++;
+		node.values = loadValues(entries, from, valuesEnd);
+		if (valuesEnd == to)
+			return compressionCache == null ? node : node.compressSelf(compressionCache);
+		// group the remaining keys by their next character
+		int transitionIndex = segmentEnd;
+		int childCount = 1;
+		for (int i = valuesEnd + 1; i < to; i++) {
+			if (entries[i].key().charAt(transitionIndex) != entries[i - 1].key().charAt(transitionIndex))
+				childCount++;
+		}
+		var keys = new char[childCount];
+		var childStarts = new int[childCount + 1];
+		for (int i = valuesEnd, child = 0; i < to; i++) {
+			char c = entries[i].key().charAt(transitionIndex);
+			if (i == valuesEnd || c != keys[child - 1]) {
+				keys[child] = c;
+				childStarts[child++] = i;
+			}
+		}
+		childStarts[childCount] = to;
+		@SuppressWarnings("unchecked")
+		N[] children = (N[]) new AbstractNode<?, ?>[childCount];
+		IntConsumer loadChild = i -> children[i] = loadNode(entries, childStarts[i], childStarts[i + 1],
+				transitionIndex + 1, false, compressionCache);
+		// the subtrees below the root are independent and large enough to be created in parallel
+		var childIndices = IntStream.range(0, childCount);
+		if (isRoot && (compressionCache == null || isCompressedInParallel()))
+			childIndices = childIndices.parallel();
+		childIndices.forEach(loadChild);
+		node.transitions = FixKeyedCharMap.ofSorted(keys, children);
+		if (compressionCache == null)
+			return node;
+		// the children are compressed already
+		node.compressTransitions();
+		return node.compressSelf(compressionCache);
+	}
+
+	private Set<T> loadValues(TrieEntry<? extends T>[] entries, int from, int to) {
+		if (from == to)
+			return Collections.emptySet(); // the same instance as EMPTY_SET
+		if (to - from == 1)
+			return SingleElementSet.of(entries[from].value());
+		Set<T> values = factory.newValueSet();
+		for (int i = from; i < to; i++)
+			values.add(entries[i].value());
+		if (values.size() == 1)
+			return SingleElementSet.of(entries[from].value());
+		return values;
+	}
+
 	public final void compress() {
 		compress(new CompressionCache(factory::newCache));
 	}
 
 	@Override
 	public final void compress(CompressionCache compressionCache) {
+		if (frozen != null || compressed)
+			return;
 		mutable = false;
-		root.compressTransitions();
-		root.compress(compressionCache);
+		compressed = true;
+		// the root is not the target of any transition, so its character is unused
+		if (isCompressedInParallel())
+			root = new CompressionTask<>('\0', root, compressionCache).invoke();
+		else
+			root = root.compress(compressionCache);
+	}
+
+	/**
+	 * Returns whether subtrees are compressed in parallel, which requires the
+	 * caches of the {@link CompressionCache} to be thread-safe.
+	 */
+	protected boolean isCompressedInParallel() {
+		return false;
+	}
+
+	/**
+	 * Compresses a subtree like {@link AbstractNode#compress(CompressionCache)}
+	 * and forks the compression of subtrees while other workers of the pool run
+	 * out of work. Leaves are never forked, and neither are subtrees once enough
+	 * tasks are queued, so the number of tasks stays close to what the pool can
+	 * actually run in parallel.
+	 */
+	private static final class CompressionTask<T, N extends AbstractNode<T, N>> extends RecursiveTask<N> {
+
+		private static final long serialVersionUID = 1L;
+
+		private static final int MAX_SURPLUS_QUEUED_TASKS = 3;
+
+		private final char transitionChar;
+		private final transient N node;
+		private final transient CompressionCache cache;
+		private transient List<CompressionTask<T, N>> forked;
+
+		CompressionTask(char transitionChar, N node, CompressionCache cache) {
+			this.transitionChar = transitionChar;
+			this.node = node;
+			this.cache = cache;
+		}
+
+		@Override
+		protected N compute() {
+			forked = new ArrayList<>();
+			return compress(node);
+		}
+
+		private N compress(N current) {
+			current.compressTransitions();
+			int forkedBefore = forked.size();
+			current.transitions.forEach((c, child) -> {
+				if (child.transitions != EMPTY_MAP && getSurplusQueuedTaskCount() < MAX_SURPLUS_QUEUED_TASKS) {
+					var task = new CompressionTask<>(c, child, cache);
+					task.fork();
+					forked.add(task);
+				} else {
+					current.replaceTransitionTarget(c, child, compress(child));
+				}
+			});
+			// join in reverse order, so that tasks not yet stolen are run directly
+			for (int i = forked.size() - 1; i >= forkedBefore; i--) {
+				var task = forked.remove(i);
+				current.replaceTransitionTarget(task.transitionChar, task.node, task.join());
+			}
+			return current.compressSelf(cache);
+		}
+	}
+
+	/**
+	 * Replaces the compressed node graph with a {@link FrozenTrie}. All lookups
+	 * are served by the frozen representation afterwards and the nodes can be
+	 * reclaimed.
+	 *
+	 * @throws IllegalStateException if the trie has not been compressed yet
+	 */
+	@Override
+	public final FrozenTrie<T> freeze() {
+		if (mutable)
+			throw new IllegalStateException("Trie must be compressed before it can be frozen");
+		if (frozen == null) {
+			frozen = FrozenTrie.of(root);
+			root = null;
+		}
+		return frozen;
+	}
+
+	public final boolean isFrozen() {
+		return frozen != null;
+	}
+
+	private FrozenTrie<T> toFrozenTrie() {
+		if (frozen != null)
+			return frozen;
+		return FrozenTrie.of(root);
 	}
 
 	@Override
 	public final int hashCode() {
+		if (frozen != null)
+			return frozen.hashCode();
 		return root.hashCode();
 	}
 
@@ -305,11 +586,19 @@ public abstract class AbstractTrie<T, N extends AbstractTrie.AbstractNode<T, N>>
 	public final boolean equals(Object obj) {
 		if (obj == this)
 			return true;
-		return obj instanceof AbstractTrie<?, ?> other && hashCode() == other.hashCode() && root.equals(other.root);
+		if (obj instanceof FrozenTrie<?> other)
+			return hashCode() == other.hashCode() && toFrozenTrie().equals(other);
+		if (!(obj instanceof AbstractTrie<?, ?> other) || hashCode() != other.hashCode())
+			return false;
+		if (frozen != null || other.frozen != null)
+			return toFrozenTrie().equals(other.toFrozenTrie());
+		return root.equals(other.root);
 	}
 
 	@Override
 	public final String toString() {
+		if (frozen != null)
+			return getClass().getSimpleName() + ": " + frozen.toString();
 		return getClass().getSimpleName() + ": " + root.toString();
 	}
 }
@@ -2,37 +2,60 @@ package net.maisikoleni.javadoc.util.trie;
 
 import java.lang.invoke.MethodHandles;
 import java.lang.invoke.VarHandle;
-import java.util.HashSet;
 import java.util.Objects;
 import java.util.Set;
-import java.util.stream.Stream;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.maisikoleni.javadoc.util.Cache;
 import net.maisikoleni.javadoc.util.CharMap;
-import net.maisikoleni.javadoc.util.CharMap.CharEntryConsumer;
-import net.maisikoleni.javadoc.util.JdkCharHashMap;
-import net.maisikoleni.javadoc.util.PrimitiveReentrantReadWriteLock;
-
+import net.maisikoleni.javadoc.util.ConcurrentCharHashMap;
+import net.maisikoleni.javadoc.util.ConcurrentCharMap;
+import net.maisikoleni.javadoc.util.SingleElementSet;
+
+/**
+ * A trie that supports concurrent lookups and insertions without locking.
+ * <p>
+ * The key segment of a node never changes once the node is reachable. Values
+ * and transitions are held in concurrent collections as soon as a node has more
+ * than one value or any transition. All other changes, like splitting a node or
+ * adding its first transition or second value, create a new version of the node
+ * that shares these collections. The new version replaces the old one using a
+ * compare-and-set on the transition of the parent, and insertions that lose
+ * such a race start over at the root.
+ */
 public final class ConcurrentTrie<T> extends AbstractTrie<T, ConcurrentTrie.Node<T>> {
 
+	private static final VarHandle ROOT_VAR_HANDLE;
+	static {
+		try {
+			ROOT_VAR_HANDLE = MethodHandles.lookup().findVarHandle(AbstractTrie.class, "root",
+					AbstractTrie.AbstractNode.class);
+		} catch (NoSuchFieldException | IllegalAccessException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	public ConcurrentTrie() {
 		this(new TypeFactory<>());
 	}
 
-	public ConcurrentTrie(AbstractTypeFactory<T> factory) {
+	public ConcurrentTrie(TypeFactory<T> factory) {
 		super(new Node<>(), factory);
 	}
 
 	static class TypeFactory<T> extends AbstractTypeFactory<T> {
 
+		/**
+		 * The returned set must support concurrent modification.
+		 */
 		@Override
 		protected Set<T> newValueSet() {
-			return new HashSet<>();
+			return ConcurrentHashMap.newKeySet(2);
 		}
 
 		@Override
-		protected <N> CharMap<N> newTransitionMap() {
-			return new JdkCharHashMap<>(2, 0.5f);
+		protected <N> ConcurrentCharMap<N> newTransitionMap() {
+			return new ConcurrentCharHashMap<>(2);
 		}
 
 		@Override
@@ -43,19 +66,14 @@ public final class ConcurrentTrie<T> extends AbstractTrie<T, ConcurrentTrie.Node
 
 	static final class Node<T> extends AbstractTrie.AbstractNode<T, Node<T>> {
 
-		private static final VarHandle LOCK_VAR_HANDLE;
-		static {
-			try {
-				LOCK_VAR_HANDLE = MethodHandles.lookup().findVarHandle(Node.class, "lockState", int.class);
-			} catch (NoSuchFieldException | IllegalAccessException e) {
-				throw new IllegalStateException(e);
-			}
+		Node() {
 		}
-		private static final PrimitiveReentrantReadWriteLock<Node<?>> LOCK = new PrimitiveReentrantReadWriteLock<>(
-				LOCK_VAR_HANDLE);
 
-		@SuppressWarnings("unused") // used in VarHandle
-		private int lockState;
+		Node(CharSequence chars, Set<T> values, CharMap<Node<T>> transitions) {
+			this.chars = chars;
+			this.values = values;
+			this.transitions = transitions;
+		}
 
 		@Override
 		protected Node<T> newNode() {
@@ -63,160 +81,150 @@ public final class ConcurrentTrie<T> extends AbstractTrie<T, ConcurrentTrie.Node
 		}
 
 		@Override
-		protected void startRead() {
-			LOCK.startRead(this);
+		protected Node<T> getOrCacheSelf(Cache<Node<T>> nodeCache) {
+			return nodeCache.getOrCache(this);
 		}
 
-		@Override
-		protected void endRead() {
-			LOCK.endRead(this);
-		}
-
-		@Override
-		protected void startWrite() {
-			LOCK.startWrite(this);
-		}
-
-		@Override
-		protected void endWrite() {
-			LOCK.endWrite(this);
-		}
-
-		@Override
-		protected void cacheSelf(Cache<Node<T>> nodeCache) {
-			nodeCache.put(this);
+		private ConcurrentCharMap<Node<T>> concurrentTransitions() {
+			return (ConcurrentCharMap<Node<T>>) transitions;
 		}
+	}
 
-		@Override
-		protected void forEachTransition(CharEntryConsumer<ConcurrentTrie.Node<T>> action) {
-			transitions.forEachParallel(action);
-		}
+	@Override
+	protected boolean isCompressedInParallel() {
+		return true;
+	}
 
-		@Override
-		protected void updateTransitionTarget(char character, ConcurrentTrie.Node<T> newValue) {
-			synchronized (transitions) {
-				transitions.put(character, newValue);
+	@Override
+	protected ConcurrentNodeMatch<T> findNode(CharSequence key, boolean writeAccess) {
+		int length = key.length();
+		Node<T> node = root();
+		int indexInNode = 0;
+		for (int indexInKey = 0; indexInKey < length; indexInKey++) {
+			char c = key.charAt(indexInKey);
+			if (node.charCount() > indexInNode) {
+				if (node.chars().charAt(indexInNode) != c)
+					return new ConcurrentNodeMatch<>(false, node, indexInNode, indexInKey);
+				indexInNode++;
+			} else {
+				Node<T> newNode = node.transitions().get(c);
+				if (newNode == null)
+					return new ConcurrentNodeMatch<>(false, node, indexInNode, indexInKey);
+				node = newNode;
+				indexInNode = 0;
 			}
 		}
+		return new ConcurrentNodeMatch<>(indexInNode == node.charCount(), node, indexInNode, length);
+	}
 
-		@Override
-		protected void compress(CompressionCache cache) {
-			super.compress(cache);
-			LOCK.setInactive(this, true);
-		}
+	record ConcurrentNodeMatch<T> (boolean success, Node<T> node, int indexInNode, int indexInKey)
+			implements NodeMatch<T, Node<T>> {
 
-		@Override
-		protected int calculateHashCode() {
-			return Objects.hash(chars, values, transitions.hashCodeParallel());
+		ConcurrentNodeMatch {
+			Objects.requireNonNull(node);
 		}
 	}
 
 	@Override
-	protected LockedNodeMatch<T> findNode(CharSequence key, boolean writeAccess) {
+	public void insert(CharSequence key, T value) {
+		if (!mutable)
+			throw new IllegalStateException("Trie is immutable");
+		while (!tryInsert(key, value)) {
+			// another thread replaced a node on our path first, start over
+		}
+	}
+
+	private boolean tryInsert(CharSequence key, T value) {
 		int length = key.length();
-		// start with the root (and reading it)
-		Node<T> node = root;
-		node.startRead();
-		boolean writeLockAcquired = false;
+		Node<T> parent = null;
+		char transitionChar = 0;
+		Node<T> node = root();
 		int indexInNode = 0;
-		int indexInKey = 0;
-		int nodeStartInKey = 0;
-		MAIN_LOOP: while (indexInKey <= length) {
-			int nodeCharCount = node.charCount();
-			CHECK: {
-				if (indexInKey == length) {
-					// acquire write lock and re-check node if necessary
-					if (writeAccess && !writeLockAcquired)
-						break CHECK;
-					boolean isExactMatch = indexInNode == nodeCharCount;
-					return new LockedNodeMatch<>(isExactMatch, node, indexInNode, length, writeAccess);
-				}
-				char c = key.charAt(indexInKey);
-				boolean nodeHasCharsLeft = nodeCharCount > indexInNode;
-				if (nodeHasCharsLeft && node.chars().charAt(indexInNode) == c) {
-					indexInNode++;
-				} else if (!nodeHasCharsLeft) {
-					Node<T> newNode = node.transitions().get(c);
-					if (newNode == null) {
-						// acquire write lock and re-check node if necessary
-						if (writeAccess && !writeLockAcquired)
-							break CHECK;
-						return new LockedNodeMatch<>(false, node, indexInNode, indexInKey, writeAccess);
-					}
-					// start reading new node
-					newNode.startRead();
-					// stop read/write to the old
-					if (writeLockAcquired)
-						node.endWrite();
-					else
-						node.endRead();
-					// switch to node at the other end of the transition
-					node = newNode;
-					// node starts with the char after this transition
-					nodeStartInKey = indexInKey + 1;
-					// reset node-dependent states
-					indexInNode = 0;
-					writeLockAcquired = false;
-				} else {
-					// acquire write lock and re-check node if necessary
-					if (writeAccess && !writeLockAcquired)
-						break CHECK;
-					return new LockedNodeMatch<>(false, node, indexInNode, indexInKey, writeAccess);
-				}
-				// normal for-loop order, continue with next index
-				indexInKey++;
-				continue MAIN_LOOP;
+		for (int indexInKey = 0; indexInKey < length; indexInKey++) {
+			char c = key.charAt(indexInKey);
+			if (node.charCount() > indexInNode) {
+				if (node.chars().charAt(indexInNode) != c)
+					return replace(parent, transitionChar, node, split(node, indexInNode, key, indexInKey, value));
+				indexInNode++;
+				continue;
 			}
-			// we found the node but require write access
-			node.endRead();
-			// state of cNode can change here
-			node.startWrite();
-			// now we can write, but must check if we still got the correct node
-			writeLockAcquired = true;
-			// check if there was at least one split
-			int newNodeCharCount = node.charCount();
-			if (newNodeCharCount != nodeCharCount && newNodeCharCount < indexInNode) {
-				// re-check new node end
-				indexInKey = nodeStartInKey + newNodeCharCount;
-				indexInNode = newNodeCharCount;
-			} else {
-				// just re-check last char
+			Node<T> newNode = node.transitions().get(c);
+			if (newNode == null) {
+				var leaf = newLeaf(key, indexInKey, value);
+				if (node.transitions() == EMPTY_MAP) {
+					var transitions = factory().<Node<T>>newTransitionMap();
+					transitions.put(c, leaf);
+					return replace(parent, transitionChar, node, new Node<>(node.chars(), node.values(), transitions));
+				}
+				newNode = node.concurrentTransitions().putIfAbsent(c, leaf);
+				if (newNode == null)
+					return true;
+				// another thread added the transition first, continue with its node
 			}
-		}
-		throw new IllegalStateException(
-				"unreachable code: key='%s',length=%d, writeLock=%s, indexInNode=%d, nodeStartInKey=%d, indexInKey=%d, node=%s"
-						.formatted(key, length, writeLockAcquired, indexInNode, nodeStartInKey, indexInKey, node));
+			parent = node;
+			transitionChar = c;
+			node = newNode;
+			indexInNode = 0;
+		}
+		if (indexInNode < node.charCount())
+			return replace(parent, transitionChar, node, split(node, indexInNode, key, length, value));
+		return addValue(parent, transitionChar, node, value);
+	}
+
+	private boolean addValue(Node<T> parent, char transitionChar, Node<T> node, T value) {
+		var values = node.values();
+		if (values == EMPTY_SET)
+			return replace(parent, transitionChar, node,
+					new Node<>(node.chars(), SingleElementSet.of(value), node.transitions()));
+		if (values.size() == 1) {
+			if (values.contains(value))
+				return true;
+			var newValues = factory().newValueSet(values);
+			newValues.add(value);
+			return replace(parent, transitionChar, node, new Node<>(node.chars(), newValues, node.transitions()));
+		}
+		// concurrent set that is shared by all later versions of the node
+		values.add(value);
+		return true;
 	}
 
-	record LockedNodeMatch<T> (boolean success, Node<T> node, int indexInNode, int indexInKey, boolean write)
-			implements NodeMatch<T, Node<T>>, AutoCloseable {
+	/**
+	 * Creates a new version of the node that ends before the given index. The
+	 * remaining key segment, values and transitions are moved to a new node behind
+	 * it, and the value is added either to the new version directly or to a new
+	 * leaf, depending on whether the key ends at the split.
+	 */
+	@SuppressWarnings("unchecked")
+	private Node<T> split(Node<T> node, int indexInNode, CharSequence key, int indexInKey, T value) {
+		var chars = node.chars();
+		var rest = new Node<>(chars.subSequence(indexInNode + 1, chars.length()), node.values(), node.transitions());
+		var transitions = factory().<Node<T>>newTransitionMap();
+		transitions.put(chars.charAt(indexInNode), rest);
+		Set<T> values = EMPTY_SET;
+		if (indexInKey == key.length())
+			values = SingleElementSet.of(value);
+		else
+			transitions.put(key.charAt(indexInKey), newLeaf(key, indexInKey, value));
+		return new Node<>(chars.subSequence(0, indexInNode), values, transitions);
+	}
 
-		LockedNodeMatch {
-			Objects.requireNonNull(node);
-		}
+	@SuppressWarnings("unchecked")
+	private static <T> Node<T> newLeaf(CharSequence key, int indexInKey, T value) {
+		return new Node<>(key.subSequence(indexInKey + 1, key.length()), SingleElementSet.of(value), EMPTY_MAP);
+	}
 
-		@Override
-		public void close() {
-			if (write)
-				node.endWrite();
-			else
-				node.endRead();
-		}
+	private boolean replace(Node<T> parent, char transitionChar, Node<T> oldNode, Node<T> newNode) {
+		if (parent == null)
+			return ROOT_VAR_HANDLE.compareAndSet(this, oldNode, newNode);
+		return parent.concurrentTransitions().replace(transitionChar, oldNode, newNode);
 	}
 
-	@Override
-	public Stream<T> search(CharSequence key) {
-		try (var nodeMatch = findNode(key, false)) {
-			return nodeMatch.switchOnSuccess(Node<T>::valueStream, () -> Stream.of());
-		}
+	@SuppressWarnings("unchecked")
+	private Node<T> root() {
+		return (Node<T>) ROOT_VAR_HANDLE.getVolatile(this);
 	}
 
-	@Override
-	public void insert(CharSequence key, T value) {
-		if (!mutable)
-			throw new IllegalStateException("Trie is immutable");
-		try (var nodeMatch = findNode(key, true)) {
-			nodeMatch.insert(key, value, factory);
-		}
+	private TypeFactory<T> factory() {
+		return (TypeFactory<T>) factory;
 	}
 }
@@ -0,0 +1,868 @@
+package net.maisikoleni.javadoc.util.trie;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.IntFunction;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import net.maisikoleni.javadoc.util.CharMap;
+import net.maisikoleni.javadoc.util.CharSearch;
+import net.maisikoleni.javadoc.util.IntLongHashSet;
+import net.maisikoleni.javadoc.util.regex.GradingLongStepMatcher;
+import net.maisikoleni.javadoc.util.trie.AbstractTrie.AbstractNode;
+import net.maisikoleni.javadoc.util.trie.AbstractTrie.GradedValueSet;
+import net.maisikoleni.javadoc.util.trie.RankedTrie.GradedResultFunction;
+import net.maisikoleni.javadoc.util.trie.RankedTrie.SeparableRankingFunction;
+
+/**
+ * An immutable trie in which all nodes are <code>int</code> indices into
+ * parallel primitive arrays instead of objects.
+ * <p>
+ * The key segments of all nodes are stored in one char arena, transitions are
+ * stored as sorted key/target pairs per node and the values of each node are a
+ * range of one shared value array. Node, key segment and value set sharing of
+ * the compressed trie is preserved, so the trie stays a DAG.
+ * <p>
+ * The values can also be {@linkplain #withEncodedValues(ValueCodec) encoded} as
+ * <code>long</code>s, in which case they are only decoded on access.
+ *
+ * @param <T> the value type
+ * @see AbstractTrie#freeze()
+ */
+public final class FrozenTrie<T> implements Trie<T> {
+
+	static final int ROOT = 0;
+
+	private static final int FLAG_SUBTREE_RANKS = 1;
+
+	private final CharBuffer segmentChars;
+	private final IntBuffer segmentOffsets;
+	private final IntBuffer segmentLengths;
+	private final IntBuffer transitionOffsets;
+	private final CharBuffer transitionKeys;
+	private final IntBuffer transitionTargets;
+	private final IntBuffer valueOffsets;
+	private final IntBuffer valueLengths;
+	private final IntFunction<T> values;
+	private final int valueCount;
+	/**
+	 * The encoded values if the values are decoded on access, otherwise
+	 * <code>null</code>.
+	 */
+	private final LongBuffer valueCodes;
+	private final ValueCodec<T> valueCodec;
+	private final FloatBuffer subtreeRanks;
+	/**
+	 * Bit set of the nodes with more than one incoming transition.
+	 */
+	private final long[] sharedNodes;
+	private int hashCode;
+
+	private FrozenTrie(CharBuffer segmentChars, IntBuffer segmentOffsets, IntBuffer segmentLengths,
+			IntBuffer transitionOffsets, CharBuffer transitionKeys, IntBuffer transitionTargets, IntBuffer valueOffsets,
+			IntBuffer valueLengths, IntFunction<T> values, int valueCount, FloatBuffer subtreeRanks) {
+		this(segmentChars, segmentOffsets, segmentLengths, transitionOffsets, transitionKeys, transitionTargets,
+				valueOffsets, valueLengths, values, valueCount, null, null, subtreeRanks);
+	}
+
+	private FrozenTrie(CharBuffer segmentChars, IntBuffer segmentOffsets, IntBuffer segmentLengths,
+			IntBuffer transitionOffsets, CharBuffer transitionKeys, IntBuffer transitionTargets, IntBuffer valueOffsets,
+			IntBuffer valueLengths, LongBuffer valueCodes, ValueCodec<T> valueCodec, FloatBuffer subtreeRanks) {
+		this(segmentChars, segmentOffsets, segmentLengths, transitionOffsets, transitionKeys, transitionTargets,
+				valueOffsets, valueLengths, index -> valueCodec.decode(valueCodes.get(index)), valueCodes.capacity(),
+				valueCodes, valueCodec, subtreeRanks);
+	}
+
+	private FrozenTrie(CharBuffer segmentChars, IntBuffer segmentOffsets, IntBuffer segmentLengths,
+			IntBuffer transitionOffsets, CharBuffer transitionKeys, IntBuffer transitionTargets, IntBuffer valueOffsets,
+			IntBuffer valueLengths, IntFunction<T> values, int valueCount, LongBuffer valueCodes,
+			ValueCodec<T> valueCodec, FloatBuffer subtreeRanks) {
+		this.segmentChars = segmentChars;
+		this.segmentOffsets = segmentOffsets;
+		this.segmentLengths = segmentLengths;
+		this.transitionOffsets = transitionOffsets;
+		this.transitionKeys = transitionKeys;
+		this.transitionTargets = transitionTargets;
+		this.valueOffsets = valueOffsets;
+		this.valueLengths = valueLengths;
+		this.values = values;
+		this.valueCount = valueCount;
+		this.valueCodes = valueCodes;
+		this.valueCodec = valueCodec;
+		this.subtreeRanks = subtreeRanks;
+		this.sharedNodes = findSharedNodes(transitionTargets, segmentOffsets.capacity());
+	}
+
+	public int nodeCount() {
+		return segmentOffsets.capacity();
+	}
+
+	private int findTransition(int node, char c) {
+		int transition = CharSearch.indexOf(transitionKeys, transitionOffsets.get(node),
+				transitionOffsets.get(node + 1), c);
+		return transition < 0 ? -1 : transitionTargets.get(transition);
+	}
+
+	/**
+	 * Returns the range of transitions of the node that can lead to an OK state
+	 * from the given state, which is a single transition if the matcher requires a
+	 * specific character. The range is returned as start in the upper and end in
+	 * the lower 32 bits.
+	 */
+	private long candidateTransitions(int node, GradingLongStepMatcher matcher, long state) {
+		int transitionStart = transitionOffsets.get(node);
+		int transitionEnd = transitionOffsets.get(node + 1);
+		if (transitionEnd - transitionStart > 1) {
+			int requiredChar = matcher.requiredChar(state);
+			if (requiredChar >= 0) {
+				int transition = CharSearch.indexOf(transitionKeys, transitionStart, transitionEnd,
+						(char) requiredChar);
+				if (transition < 0)
+					return 0L;
+				return ((long) transition << Integer.SIZE) | (transition + 1);
+			}
+		}
+		return ((long) transitionStart << Integer.SIZE) | transitionEnd;
+	}
+
+	@Override
+	public Stream<T> search(CharSequence key) {
+		int node = ROOT;
+		int indexInNode = 0;
+		for (int indexInKey = 0; indexInKey < key.length(); indexInKey++) {
+			char c = key.charAt(indexInKey);
+			if (indexInNode < segmentLengths.get(node)) {
+				if (segmentChars.get(segmentOffsets.get(node) + indexInNode) != c)
+					return Stream.of();
+				indexInNode++;
+			} else {
+				node = findTransition(node, c);
+				if (node < 0)
+					return Stream.of();
+				indexInNode = 0;
+			}
+		}
+		if (indexInNode != segmentLengths.get(node))
+			return Stream.of();
+		return valuesOf(node).stream();
+	}
+
+	@Override
+	public Stream<T> search(GradingLongStepMatcher matcher) {
+		var results = new PriorityQueue<GradedValueSet<T>>();
+		// no deduplication here, the order of the queue depends on the insertion order
+		search(ROOT, matcher, matcher.getStartState(), results::add, null);
+		return results.stream().map(GradedValueSet::values).flatMap(Collection::stream).distinct();
+	}
+
+	/**
+	 * Reports all matching value sets to the consumer. Shared nodes are only
+	 * searched once per matcher state, value sets reported more than once would
+	 * have the same grade, so they are reported only once.
+	 */
+	void search(GradingLongStepMatcher matcher, Consumer<GradedValueSet<T>> resultConsumer) {
+		search(ROOT, matcher, matcher.getStartState(), resultConsumer, new IntLongHashSet());
+	}
+
+	private boolean search(int node, GradingLongStepMatcher matcher, long startState,
+			Consumer<GradedValueSet<T>> resultConsumer, IntLongHashSet visited) {
+		long result = stepThroughSegment(node, matcher, startState);
+		if (!matcher.isOk(result))
+			return false;
+		// the subtree was already searched with the same state from another path
+		if (visited != null && isShared(node) && !visited.add(node, result))
+			return false;
+		boolean hasMatch = matcher.isMatch(result) && valueLengths.get(node) != 0;
+		if (hasMatch) {
+			double grade = matcher.grade(result);
+			resultConsumer.accept(new GradedValueSet<>(valuesOf(node), grade));
+		}
+		boolean childrenMatched = false;
+		long transitions = candidateTransitions(node, matcher, result);
+		int transitionEnd = (int) transitions;
+		for (int t = (int) (transitions >>> Integer.SIZE); t < transitionEnd; t++) {
+			long stateAfterKey = matcher.step(transitionKeys.get(t), result);
+			if (matcher.isOk(stateAfterKey))
+				childrenMatched |= search(transitionTargets.get(t), matcher, stateAfterKey, resultConsumer, visited);
+		}
+		return hasMatch || childrenMatched;
+	}
+
+	/**
+	 * Steps through the key segment of the node directly in the char arena.
+	 */
+	private long stepThroughSegment(int node, GradingLongStepMatcher matcher, long state) {
+		int segmentOffset = segmentOffsets.get(node);
+		return matcher.stepThrough(segmentChars, state, segmentOffset, segmentOffset + segmentLengths.get(node));
+	}
+
+	private boolean isShared(int node) {
+		return (sharedNodes[node >>> 6] & (1L << node)) != 0;
+	}
+
+	private static long[] findSharedNodes(IntBuffer transitionTargets, int nodeCount) {
+		var reachedNodes = new long[(nodeCount + Long.SIZE - 1) >>> 6];
+		var sharedNodes = new long[reachedNodes.length];
+		for (int t = 0; t < transitionTargets.capacity(); t++) {
+			int target = transitionTargets.get(t);
+			if ((reachedNodes[target >>> 6] & (1L << target)) != 0)
+				sharedNodes[target >>> 6] |= 1L << target;
+			else
+				reachedNodes[target >>> 6] |= 1L << target;
+		}
+		return sharedNodes;
+	}
+
+	boolean hasSubtreeRanks() {
+		return subtreeRanks != null;
+	}
+
+	/**
+	 * Returns a trie with the same content that additionally stores the maximum
+	 * entry rank of all values in the subtree of each node, which allows
+	 * {@link #searchBestFirst(GradingLongStepMatcher, SeparableRankingFunction, Comparator)}.
+	 * The maximum is rounded up to the next <code>float</code>.
+	 */
+	FrozenTrie<T> withSubtreeRanks(ToDoubleFunction<? super T> entryRank) {
+		var ranks = new float[nodeCount()];
+		Arrays.fill(ranks, Float.NaN);
+		subtreeRank(ROOT, entryRank, ranks);
+		return new FrozenTrie<>(segmentChars, segmentOffsets, segmentLengths, transitionOffsets, transitionKeys,
+				transitionTargets, valueOffsets, valueLengths, values, valueCount, valueCodes, valueCodec,
+				FloatBuffer.wrap(ranks));
+	}
+
+	/**
+	 * Returns a trie with the same content that stores the values as the
+	 * <code>long</code> returned by the codec and decodes them on access, which
+	 * avoids keeping one object per stored value. Decoded values must be equal to
+	 * the original ones.
+	 */
+	public FrozenTrie<T> withEncodedValues(ValueCodec<T> codec) {
+		Objects.requireNonNull(codec);
+		if (codec == valueCodec)
+			return this;
+		var codes = new long[valueCount];
+		for (int i = 0; i < valueCount; i++)
+			codes[i] = codec.encode(values.apply(i));
+		return new FrozenTrie<>(segmentChars, segmentOffsets, segmentLengths, transitionOffsets, transitionKeys,
+				transitionTargets, valueOffsets, valueLengths, LongBuffer.wrap(codes), codec, subtreeRanks);
+	}
+
+	private float subtreeRank(int node, ToDoubleFunction<? super T> entryRank, float[] ranks) {
+		if (!Float.isNaN(ranks[node]))
+			return ranks[node];
+		double max = Double.NEGATIVE_INFINITY;
+		for (var value : valuesOf(node))
+			max = Math.max(max, entryRank.applyAsDouble(value));
+		float rank = (float) max;
+		if (rank < max)
+			rank = Math.nextUp(rank);
+		for (int t = transitionOffsets.get(node); t < transitionOffsets.get(node + 1); t++)
+			rank = Math.max(rank, subtreeRank(transitionTargets.get(t), entryRank, ranks));
+		ranks[node] = rank;
+		return rank;
+	}
+
+	/**
+	 * Searches the trie lazily in the order of the ranks of the results, the
+	 * results are equivalent to merging all matching value sets like
+	 * {@link RankedTrie} does.
+	 * <p>
+	 * The traversal is driven by a priority queue that contains partially matched
+	 * subtrees and the remaining values of matched nodes. Subtrees are ranked by an
+	 * upper bound of the ranks they can contain, which is calculated from the
+	 * {@linkplain #withSubtreeRanks(ToDoubleFunction) subtree ranks} and the
+	 * {@linkplain GradingLongStepMatcher#maxGrade(long) maximum grade}. A subtree
+	 * is only expanded once it is the best candidate, so the search does no more
+	 * work than required for the results that get consumed.
+	 * <p>
+	 * The values of a node must be in descending order of their entry ranks, and
+	 * values with equal rank must be ordered according to the tie breaker.
+	 */
+	Stream<T> searchBestFirst(GradingLongStepMatcher matcher, SeparableRankingFunction<T> rankingFunction,
+			Comparator<? super T> tieBreaker) {
+		return searchBestFirst(matcher, rankingFunction, tieBreaker, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Searches like
+	 * {@link #searchBestFirst(GradingLongStepMatcher, SeparableRankingFunction, Comparator)},
+	 * but stops once the matcher stepped through the given number of chars and the
+	 * next best candidate is a subtree. The results are therefore always the first
+	 * results of the complete search.
+	 */
+	Stream<T> searchBestFirst(GradingLongStepMatcher matcher, SeparableRankingFunction<T> rankingFunction,
+			Comparator<? super T> tieBreaker, long stepBudget) {
+		return searchBestFirst(matcher, rankingFunction, tieBreaker, stepBudget, (value, searchGrade) -> value);
+	}
+
+	/**
+	 * Searches like
+	 * {@link #searchBestFirst(GradingLongStepMatcher, SeparableRankingFunction, Comparator, long)},
+	 * but creates the results from the values and the grades of the matches they
+	 * were found with.
+	 */
+	<R> Stream<R> searchBestFirst(GradingLongStepMatcher matcher, SeparableRankingFunction<T> rankingFunction,
+			Comparator<? super T> tieBreaker, long stepBudget,
+			GradedResultFunction<? super T, ? extends R> resultFunction) {
+		if (subtreeRanks == null)
+			throw new IllegalStateException("Subtree ranks are required for the best-first search");
+		return StreamSupport.stream(
+				new BestFirstSearch<R>(matcher, rankingFunction, tieBreaker, stepBudget, resultFunction), false);
+	}
+
+	private final class BestFirstSearch<R> implements Spliterator<R> {
+
+		private final PriorityQueue<Candidate<T>> frontier = new PriorityQueue<>();
+		private final IntLongHashSet visited = new IntLongHashSet();
+		private final GradingLongStepMatcher matcher;
+		private final SeparableRankingFunction<T> rankingFunction;
+		private final Comparator<? super T> tieBreaker;
+		private final GradedResultFunction<? super T, ? extends R> resultFunction;
+		private long remainingSteps;
+
+		BestFirstSearch(GradingLongStepMatcher matcher, SeparableRankingFunction<T> rankingFunction,
+				Comparator<? super T> tieBreaker, long stepBudget,
+				GradedResultFunction<? super T, ? extends R> resultFunction) {
+			this.matcher = matcher;
+			this.rankingFunction = rankingFunction;
+			this.tieBreaker = tieBreaker;
+			this.resultFunction = resultFunction;
+			this.remainingSteps = stepBudget;
+			addSubtree(ROOT, matcher.getStartState());
+		}
+
+		@Override
+		public boolean tryAdvance(Consumer<? super R> action) {
+			Candidate<T> candidate;
+			while ((candidate = frontier.poll()) != null) {
+				if (candidate instanceof ValueCandidate<T> valueCandidate) {
+					var value = valueCandidate.currentValue;
+					if (advance(valueCandidate))
+						frontier.add(valueCandidate);
+					action.accept(resultFunction.apply(value, valueCandidate.searchGrade));
+					return true;
+				}
+				if (remainingSteps <= 0) {
+					frontier.clear();
+					return false;
+				}
+				expand((SubtreeCandidate<T>) candidate);
+			}
+			return false;
+		}
+
+		/**
+		 * Expands the subtree. Chains of nodes with a single transition are followed
+		 * directly instead of adding each node to the frontier, which only expands
+		 * them earlier than necessary and therefore does not change the order.
+		 */
+		private void expand(SubtreeCandidate<T> subtree) {
+			int node = subtree.node;
+			long state = subtree.state;
+			while (true) {
+				remainingSteps -= segmentLengths.get(node);
+				long result = stepThroughSegment(node, matcher, state);
+				if (!matcher.isOk(result))
+					return;
+				// the subtree was already expanded with the same state from another path
+				if (isShared(node) && !visited.add(node, result))
+					return;
+				int valueLength = valueLengths.get(node);
+				if (valueLength != 0 && matcher.isMatch(result)) {
+					int valueOffset = valueOffsets.get(node);
+					var valueCandidate = new ValueCandidate<T>(valueOffset, valueOffset + valueLength,
+							matcher.grade(result), tieBreaker);
+					advance(valueCandidate);
+					frontier.add(valueCandidate);
+				}
+				long transitions = candidateTransitions(node, matcher, result);
+				int transitionStart = (int) (transitions >>> Integer.SIZE);
+				int transitionEnd = (int) transitions;
+				remainingSteps -= transitionEnd - transitionStart;
+				if (transitionEnd - transitionStart != 1) {
+					for (int t = transitionStart; t < transitionEnd; t++) {
+						long stateAfterKey = matcher.step(transitionKeys.get(t), result);
+						if (matcher.isOk(stateAfterKey))
+							addSubtree(transitionTargets.get(t), stateAfterKey);
+					}
+					return;
+				}
+				state = matcher.step(transitionKeys.get(transitionStart), result);
+				if (!matcher.isOk(state))
+					return;
+				node = transitionTargets.get(transitionStart);
+			}
+		}
+
+		private void addSubtree(int node, long state) {
+			double rankBound = rankingFunction.rank(subtreeRanks.get(node), matcher.maxGrade(state));
+			frontier.add(new SubtreeCandidate<>(node, state, rankBound));
+		}
+
+		private boolean advance(ValueCandidate<T> valueCandidate) {
+			if (valueCandidate.index == valueCandidate.end)
+				return false;
+			var value = values.apply(valueCandidate.index++);
+			valueCandidate.currentValue = value;
+			valueCandidate.rank = rankingFunction.rank(value, valueCandidate.searchGrade);
+			return true;
+		}
+
+		@Override
+		public Spliterator<R> trySplit() {
+			return null; // split not possible
+		}
+
+		@Override
+		public long estimateSize() {
+			return Long.MAX_VALUE;
+		}
+
+		@Override
+		public int characteristics() {
+			return Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED;
+		}
+	}
+
+	private abstract static class Candidate<T> implements Comparable<Candidate<T>> {
+
+		protected double rank;
+
+		@Override
+		public final int compareTo(Candidate<T> o) {
+			// reversed to have higher values first
+			var rankComparison = Double.compare(o.rank, rank);
+			if (rankComparison != 0)
+				return rankComparison;
+			return compareEqualRank(o);
+		}
+
+		protected abstract int compareEqualRank(Candidate<T> o);
+	}
+
+	private static final class SubtreeCandidate<T> extends Candidate<T> {
+
+		final int node;
+		final long state;
+
+		SubtreeCandidate(int node, long state, double rankBound) {
+			this.node = node;
+			this.state = state;
+			this.rank = rankBound;
+		}
+
+		@Override
+		protected int compareEqualRank(Candidate<T> o) {
+			// subtrees first, they could contain a value of equal rank that is lower
+			return o instanceof SubtreeCandidate ? 0 : -1;
+		}
+	}
+
+	private static final class ValueCandidate<T> extends Candidate<T> {
+
+		final int end;
+		final double searchGrade;
+		final Comparator<? super T> tieBreaker;
+		int index;
+		T currentValue;
+
+		ValueCandidate(int offset, int end, double searchGrade, Comparator<? super T> tieBreaker) {
+			this.index = offset;
+			this.end = end;
+			this.searchGrade = searchGrade;
+			this.tieBreaker = tieBreaker;
+		}
+
+		@Override
+		protected int compareEqualRank(Candidate<T> o) {
+			if (o instanceof ValueCandidate<T> other)
+				return tieBreaker.compare(currentValue, other.currentValue);
+			return 1;
+		}
+	}
+
+	List<T> valuesOf(int node) {
+		return new ValueRange(valueOffsets.get(node), valueLengths.get(node));
+	}
+
+	String segmentOf(int node) {
+		int segmentOffset = segmentOffsets.get(node);
+		return segmentChars.slice(segmentOffset, segmentLengths.get(node)).toString();
+	}
+
+	int transitionsStart(int node) {
+		return transitionOffsets.get(node);
+	}
+
+	int transitionsEnd(int node) {
+		return transitionOffsets.get(node + 1);
+	}
+
+	char transitionKey(int transition) {
+		return transitionKeys.get(transition);
+	}
+
+	int transitionTarget(int transition) {
+		return transitionTargets.get(transition);
+	}
+
+	@Override
+	public void insert(CharSequence key, T value) {
+		throw new IllegalStateException("Trie is immutable");
+	}
+
+	@Override
+	public void merge(Trie<? extends T> other) {
+		throw new IllegalStateException("Trie is immutable");
+	}
+
+	@Override
+	public void load(List<? extends TrieEntry<? extends T>> entries) {
+		throw new IllegalStateException("Trie is immutable");
+	}
+
+	@Override
+	public void load(List<? extends TrieEntry<? extends T>> entries, CompressionCache compressionCache) {
+		throw new IllegalStateException("Trie is immutable");
+	}
+
+	@Override
+	public void compress(CompressionCache compressionCache) {
+		// already compressed
+	}
+
+	@Override
+	public FrozenTrie<T> freeze() {
+		return this;
+	}
+
+	private final class ValueRange extends AbstractList<T> {
+
+		private final int offset;
+		private final int size;
+
+		ValueRange(int offset, int size) {
+			this.offset = offset;
+			this.size = size;
+		}
+
+		@Override
+		public T get(int index) {
+			Objects.checkIndex(index, size);
+			return values.apply(offset + index);
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * Creates a frozen copy of the (compressed) node graph starting with the given
+	 * root. Transitions are stored sorted by their key, so the traversal order is
+	 * the same as for compressed {@link AbstractNode}s.
+	 */
+	static <T, N extends AbstractNode<T, N>> FrozenTrie<T> of(N root) {
+		// assign the node indices in depth-first pre-order
+		var nodeIndices = new IdentityHashMap<N, Integer>();
+		var nodes = new ArrayList<N>();
+		var pending = new ArrayList<N>();
+		pending.add(root);
+		int transitionCount = 0;
+		while (!pending.isEmpty()) {
+			var node = pending.removeLast();
+			if (nodeIndices.putIfAbsent(node, nodes.size()) != null)
+				continue;
+			nodes.add(node);
+			var children = sortedTransitions(node.transitions);
+			transitionCount += children.size();
+			for (int i = children.size() - 1; i >= 0; i--)
+				pending.add(children.get(i).target());
+		}
+		int nodeCount = nodes.size();
+		var segmentChars = new StringBuilder();
+		var segmentOffsets = new int[nodeCount];
+		var segmentLengths = new int[nodeCount];
+		var transitionOffsets = new int[nodeCount + 1];
+		var transitionKeys = new char[transitionCount];
+		var transitionTargets = new int[transitionCount];
+		var valueOffsets = new int[nodeCount];
+		var valueLengths = new int[nodeCount];
+		var values = new ArrayList<T>();
+		// the compression cache makes equal segments and value sets identical
+		Map<CharSequence, Integer> segmentIndices = new IdentityHashMap<>();
+		Map<Set<T>, Integer> valueIndices = new IdentityHashMap<>();
+		int transitionIndex = 0;
+		for (int n = 0; n < nodeCount; n++) {
+			var node = nodes.get(n);
+			var chars = node.chars;
+			segmentOffsets[n] = segmentIndices.computeIfAbsent(chars, cs -> {
+				int offset = segmentChars.length();
+				segmentChars.append(cs);
+				return offset;
+			});
+			segmentLengths[n] = chars.length();
+			valueOffsets[n] = valueIndices.computeIfAbsent(node.values, vs -> {
+				int offset = values.size();
+				values.addAll(vs);
+				return offset;
+			});
+			valueLengths[n] = node.values.size();
+			transitionOffsets[n] = transitionIndex;
+			for (var transition : sortedTransitions(node.transitions)) {
+				transitionKeys[transitionIndex] = transition.key();
+				transitionTargets[transitionIndex] = nodeIndices.get(transition.target());
+				transitionIndex++;
+			}
+		}
+		transitionOffsets[nodeCount] = transitionIndex;
+		var segmentCharArray = new char[segmentChars.length()];
+		segmentChars.getChars(0, segmentCharArray.length, segmentCharArray, 0);
+		@SuppressWarnings("unchecked")
+		var valueArray = (T[]) values.toArray();
+		return new FrozenTrie<>(CharBuffer.wrap(segmentCharArray), IntBuffer.wrap(segmentOffsets),
+				IntBuffer.wrap(segmentLengths), IntBuffer.wrap(transitionOffsets), CharBuffer.wrap(transitionKeys),
+				IntBuffer.wrap(transitionTargets), IntBuffer.wrap(valueOffsets), IntBuffer.wrap(valueLengths),
+				index -> valueArray[index], valueArray.length, null);
+	}
+
+	private record Transition<N> (char key, N target) {
+	}
+
+	private static <N> List<Transition<N>> sortedTransitions(CharMap<N> transitions) {
+		var result = new ArrayList<Transition<N>>(transitions.size());
+		transitions.forEach((c, node) -> result.add(new Transition<>(c, node)));
+		if (result.size() > 1)
+			result.sort((a, b) -> Character.compare(a.key(), b.key()));
+		return result;
+	}
+
+	@Override
+	public int hashCode() {
+		if (hashCode == 0)
+			hashCode = hashCode(ROOT, new int[nodeCount()]);
+		return hashCode;
+	}
+
+	private int hashCode(int node, int[] nodeHashCodes) {
+		if (nodeHashCodes[node] != 0)
+			return nodeHashCodes[node];
+		int segmentHash = 0;
+		int segmentOffset = segmentOffsets.get(node);
+		for (int i = segmentOffset; i < segmentOffset + segmentLengths.get(node); i++)
+			segmentHash = 31 * segmentHash + segmentChars.get(i);
+		int valueHash = 0;
+		for (var value : valuesOf(node))
+			valueHash += value.hashCode();
+		int transitionHash = 0;
+		for (int t = transitionOffsets.get(node); t < transitionOffsets.get(node + 1); t++)
+			transitionHash += hashCode(transitionTargets.get(t), nodeHashCodes) * 31 + transitionKeys.get(t);
+		// equivalent to Objects.hash(chars, values, transitions) of the nodes
+		int hash = ((31 + segmentHash) * 31 + valueHash) * 31 + transitionHash;
+		if (hash == 0)
+			hash = 1;
+		nodeHashCodes[node] = hash;
+		return hash;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj == this)
+			return true;
+		if (obj instanceof AbstractTrie<?, ?> other)
+			return other.equals(this);
+		if (!(obj instanceof FrozenTrie<?> other) || hashCode() != other.hashCode())
+			return false;
+		return nodeEquals(ROOT, other, ROOT, new HashSet<>());
+	}
+
+	private boolean nodeEquals(int node, FrozenTrie<?> other, int otherNode, Set<Long> equalNodes) {
+		// shared nodes only need to be compared once
+		if (!equalNodes.add(((long) node << Integer.SIZE) | otherNode))
+			return true;
+		int segmentOffset = segmentOffsets.get(node);
+		int otherSegmentOffset = other.segmentOffsets.get(otherNode);
+		if (!segmentChars.slice(segmentOffset, segmentLengths.get(node))
+				.equals(other.segmentChars.slice(otherSegmentOffset, other.segmentLengths.get(otherNode))))
+			return false;
+		if (!valuesOf(node).equals(other.valuesOf(otherNode))
+				&& !new HashSet<>(valuesOf(node)).equals(new HashSet<>(other.valuesOf(otherNode))))
+			return false;
+		int transitionOffset = transitionOffsets.get(node);
+		int transitionCount = transitionOffsets.get(node + 1) - transitionOffset;
+		int otherTransitionOffset = other.transitionOffsets.get(otherNode);
+		if (transitionCount != other.transitionOffsets.get(otherNode + 1) - otherTransitionOffset)
+			return false;
+		for (int i = 0; i < transitionCount; i++) {
+			if (transitionKeys.get(transitionOffset + i) != other.transitionKeys.get(otherTransitionOffset + i)
+					|| !nodeEquals(transitionTargets.get(transitionOffset + i), other,
+							other.transitionTargets.get(otherTransitionOffset + i), equalNodes))
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + ": " + toString(ROOT);
+	}
+
+	private String toString(int node) {
+		var result = new StringBuilder();
+		result.append("Node[\"");
+		int segmentOffset = segmentOffsets.get(node);
+		result.append(segmentChars, segmentOffset, segmentOffset + segmentLengths.get(node));
+		result.append("\"] values: ");
+		result.append(valuesOf(node));
+		result.append('\n');
+		for (int t = transitionOffsets.get(node); t < transitionOffsets.get(node + 1); t++) {
+			result.append(toString(transitionTargets.get(t)).indent(8).replaceFirst(" ".repeat(7),
+					" '" + transitionKeys.get(t) + "' ->"));
+		}
+		return result.toString();
+	}
+
+	/**
+	 * Returns the number of bytes {@link #writeImage(ByteBuffer, ValueCodec)}
+	 * writes for this trie.
+	 */
+	int imageSize() {
+		int nodeCount = nodeCount();
+		int transitionCount = transitionKeys.capacity();
+		long size = 5L * Integer.BYTES;
+		size += Integer.BYTES * (5L * nodeCount + 1 + transitionCount);
+		size = align(size);
+		size += (long) Long.BYTES * valueCount;
+		if (subtreeRanks != null)
+			size += (long) Float.BYTES * nodeCount;
+		size += (long) Character.BYTES * (segmentChars.capacity() + transitionCount);
+		return Math.toIntExact(align(size));
+	}
+
+	/**
+	 * Writes this trie to the target at its position, which must be aligned to 8
+	 * bytes. Values are written as the <code>long</code> returned by the codec.
+	 */
+	void writeImage(ByteBuffer target, ValueCodec<T> codec) {
+		int start = target.position();
+		int nodeCount = nodeCount();
+		int transitionCount = transitionKeys.capacity();
+		target.putInt(nodeCount).putInt(transitionCount).putInt(valueCount).putInt(segmentChars.capacity());
+		target.putInt(subtreeRanks != null ? FLAG_SUBTREE_RANKS : 0);
+		var ints = target.asIntBuffer();
+		ints.put(segmentOffsets.duplicate().clear());
+		ints.put(segmentLengths.duplicate().clear());
+		ints.put(transitionOffsets.duplicate().clear());
+		ints.put(transitionTargets.duplicate().clear());
+		ints.put(valueOffsets.duplicate().clear());
+		ints.put(valueLengths.duplicate().clear());
+		target.position(Math.toIntExact(align(target.position() + (long) ints.position() * Integer.BYTES)));
+		var longs = target.asLongBuffer();
+		if (codec == valueCodec) {
+			longs.put(valueCodes.duplicate().clear());
+		} else {
+			for (int i = 0; i < valueCount; i++)
+				longs.put(codec.encode(values.apply(i)));
+		}
+		target.position(target.position() + longs.position() * Long.BYTES);
+		if (subtreeRanks != null) {
+			target.asFloatBuffer().put(subtreeRanks.duplicate().clear());
+			target.position(target.position() + nodeCount * Float.BYTES);
+		}
+		var chars = target.asCharBuffer();
+		chars.put(segmentChars.duplicate().clear());
+		chars.put(transitionKeys.duplicate().clear());
+		target.position(start + imageSize());
+	}
+
+	/**
+	 * Creates a trie that directly uses the data written by
+	 * {@link #writeImage(ByteBuffer, ValueCodec)} to the source, starting at its
+	 * position. Nothing is copied, the values are decoded on access. The position
+	 * of the source is advanced to the end of the trie.
+	 */
+	static <T> FrozenTrie<T> readImage(ByteBuffer source, ValueCodec<T> codec) {
+		int start = source.position();
+		int nodeCount = source.getInt();
+		int transitionCount = source.getInt();
+		int valueCount = source.getInt();
+		int segmentCharCount = source.getInt();
+		int flags = source.getInt();
+		if (nodeCount <= 0 || transitionCount < 0 || valueCount < 0 || segmentCharCount < 0
+				|| (flags & ~FLAG_SUBTREE_RANKS) != 0)
+			throw new IllegalArgumentException("Invalid trie image section");
+		var segmentOffsets = sliceInts(source, nodeCount);
+		var segmentLengths = sliceInts(source, nodeCount);
+		var transitionOffsets = sliceInts(source, nodeCount + 1);
+		var transitionTargets = sliceInts(source, transitionCount);
+		var valueOffsets = sliceInts(source, nodeCount);
+		var valueLengths = sliceInts(source, nodeCount);
+		source.position(Math.toIntExact(align(source.position())));
+		var encodedValues = source.slice(source.position(), valueCount * Long.BYTES).order(source.order())
+				.asLongBuffer();
+		source.position(source.position() + valueCount * Long.BYTES);
+		FloatBuffer subtreeRanks = null;
+		if ((flags & FLAG_SUBTREE_RANKS) != 0) {
+			subtreeRanks = source.slice(source.position(), nodeCount * Float.BYTES).order(source.order())
+					.asFloatBuffer();
+			source.position(source.position() + nodeCount * Float.BYTES);
+		}
+		var segmentChars = sliceChars(source, segmentCharCount);
+		var transitionKeys = sliceChars(source, transitionCount);
+		source.position(Math.toIntExact(align(source.position())));
+		var trie = new FrozenTrie<>(segmentChars, segmentOffsets, segmentLengths, transitionOffsets, transitionKeys,
+				transitionTargets, valueOffsets, valueLengths, encodedValues, codec, subtreeRanks);
+		if (trie.imageSize() != source.position() - start)
+			throw new IllegalArgumentException("Invalid trie image section");
+		return trie;
+	}
+
+	private static IntBuffer sliceInts(ByteBuffer source, int count) {
+		var ints = source.slice(source.position(), count * Integer.BYTES).order(source.order()).asIntBuffer();
+		source.position(source.position() + count * Integer.BYTES);
+		return ints;
+	}
+
+	private static CharBuffer sliceChars(ByteBuffer source, int count) {
+		var chars = source.slice(source.position(), count * Character.BYTES).order(source.order()).asCharBuffer();
+		source.position(source.position() + count * Character.BYTES);
+		return chars;
+	}
+
+	private static long align(long position) {
+		return (position + Long.BYTES - 1) & -Long.BYTES;
+	}
+
+	/**
+	 * Converts the values of a trie to a <code>long</code> and back to store them
+	 * in a {@link TrieImage}.
+	 */
+	public interface ValueCodec<T> {
+
+		long encode(T value);
+
+		T decode(long code);
+	}
+}
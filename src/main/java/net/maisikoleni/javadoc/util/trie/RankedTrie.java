@@ -1,12 +1,16 @@
 package net.maisikoleni.javadoc.util.trie;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
 import java.util.PriorityQueue;
 import java.util.Set;
 import java.util.Spliterator;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.function.Consumer;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
@@ -16,14 +20,32 @@ import net.maisikoleni.javadoc.util.trie.AbstractTrie.GradedValueSet;
 
 public class RankedTrie<T extends Comparable<T>> implements Trie<T> {
 
-	private final AbstractTrie<T, ?> trie;
+	private final Trie<T> trie;
+	private final GradedSearch<T> gradedSearch;
 	private final RankingFunction<T> rankingFunction;
+	private FrozenTrie<T> bestFirstTrie;
 
 	public RankedTrie(AbstractTrie<T, ?> trie, RankingFunction<T> rankingFunction) {
+		this(trie, trie::search, rankingFunction);
+	}
+
+	public RankedTrie(FrozenTrie<T> trie, RankingFunction<T> rankingFunction) {
+		this(trie, trie::search, rankingFunction);
+		initBestFirstSearch(trie);
+	}
+
+	private RankedTrie(Trie<T> trie, GradedSearch<T> gradedSearch, RankingFunction<T> rankingFunction) {
 		this.trie = Objects.requireNonNull(trie);
+		this.gradedSearch = gradedSearch;
 		this.rankingFunction = Objects.requireNonNull(rankingFunction);
 	}
 
+	@FunctionalInterface
+	private interface GradedSearch<T> {
+
+		void search(GradingLongStepMatcher matcher, Consumer<GradedValueSet<T>> resultConsumer);
+	}
+
 	public static final class RankedSimpleTrie<T extends Comparable<T>> extends RankedTrie<T> {
 
 		public RankedSimpleTrie(RankingFunction<T> rankingFunction) {
@@ -49,7 +71,7 @@ public class RankedTrie<T extends Comparable<T>> implements Trie<T> {
 
 			@Override
 			protected Set<T> newValueSet() {
-				return new TreeSet<>();
+				return new ConcurrentSkipListSet<>();
 			}
 		}
 	}
@@ -64,38 +86,127 @@ public class RankedTrie<T extends Comparable<T>> implements Trie<T> {
 		return trie.search(key);
 	}
 
+	@Override
+	public void load(List<? extends TrieEntry<? extends T>> entries) {
+		trie.load(entries);
+	}
+
+	@Override
+	public void load(List<? extends TrieEntry<? extends T>> entries, CompressionCache compressionCache) {
+		trie.load(entries, compressionCache);
+	}
+
+	@Override
+	public void merge(Trie<? extends T> other) {
+		if (other instanceof RankedTrie<? extends T> rankedTrie)
+			trie.merge(rankedTrie.trie);
+		else
+			trie.merge(other);
+	}
+
 	@Override
 	public void compress(CompressionCache compressionCache) {
 		trie.compress(compressionCache);
 	}
 
+	@Override
+	public FrozenTrie<T> freeze() {
+		if (bestFirstTrie != null)
+			return bestFirstTrie;
+		var frozenTrie = trie.freeze();
+		initBestFirstSearch(frozenTrie);
+		return bestFirstTrie != null ? bestFirstTrie : frozenTrie;
+	}
+
+	private void initBestFirstSearch(FrozenTrie<T> frozenTrie) {
+		if (rankingFunction instanceof SeparableRankingFunction<T> separableRankingFunction) {
+			if (frozenTrie.hasSubtreeRanks())
+				bestFirstTrie = frozenTrie;
+			else
+				bestFirstTrie = frozenTrie.withSubtreeRanks(separableRankingFunction::entryRank);
+		}
+	}
+
 	@Override
 	public Stream<T> search(GradingLongStepMatcher matcher) {
-		var rankedMerger = new RankedMerger();
-		trie.root.search(matcher, matcher.getStartState(), rankedMerger::add);
-		return rankedMerger.stream().distinct();
+		return search(matcher, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Searches like {@link #search(GradingLongStepMatcher)}, but stops once the
+	 * matcher stepped through the given number of chars, which bounds the work of
+	 * expensive matchers. The results are the first ones of the complete search.
+	 * Only the best-first search is bounded, other searches are complete.
+	 */
+	public Stream<T> search(GradingLongStepMatcher matcher, long stepBudget) {
+		return search(matcher, stepBudget, (value, searchGrade) -> value).distinct();
 	}
 
-	private final class RankedMerger implements Spliterator<T> {
+	/**
+	 * Searches like {@link #search(GradingLongStepMatcher)}, but also returns the
+	 * grade of the match that each value was found with. Values that were found by
+	 * multiple matches only have the grade of their first and best ranked one.
+	 */
+	public Stream<GradedValue<T>> searchGraded(GradingLongStepMatcher matcher) {
+		var foundValues = new HashSet<T>();
+		return search(matcher, Long.MAX_VALUE, GradedValue<T>::new)
+				.filter(gradedValue -> foundValues.add(gradedValue.value()));
+	}
+
+	private <R> Stream<R> search(GradingLongStepMatcher matcher, long stepBudget,
+			GradedResultFunction<? super T, ? extends R> resultFunction) {
+		if (bestFirstTrie != null) {
+			var separableRankingFunction = (SeparableRankingFunction<T>) rankingFunction;
+			return bestFirstTrie.searchBestFirst(matcher, separableRankingFunction, Comparator.naturalOrder(),
+					stepBudget, resultFunction);
+		}
+		var rankedMerger = new RankedMerger<R>(resultFunction);
+		gradedSearch.search(matcher, rankedMerger::add);
+		return rankedMerger.stream();
+	}
+
+	/**
+	 * A search result together with the grade of the match it was found with.
+	 */
+	public record GradedValue<T>(T value, double grade) {
+	}
+
+	/**
+	 * Creates the result of a search from a value and the grade of the match it
+	 * was found with.
+	 */
+	@FunctionalInterface
+	interface GradedResultFunction<T, R> {
+
+		R apply(T value, double searchGrade);
+	}
+
+	private final class RankedMerger<R> implements Spliterator<R> {
 
 		private final PriorityQueue<Entry> sets = new PriorityQueue<>();
+		private final GradedResultFunction<? super T, ? extends R> resultFunction;
 		private int size;
 
+		RankedMerger(GradedResultFunction<? super T, ? extends R> resultFunction) {
+			this.resultFunction = resultFunction;
+		}
+
 		void add(GradedValueSet<T> gradedValueSet) {
 			size += gradedValueSet.values().size();
 			sets.add(new Entry(gradedValueSet.values(), gradedValueSet.grade()));
 		}
 
 		@Override
-		public boolean tryAdvance(Consumer<? super T> action) {
-			if (sets.isEmpty())
+		public boolean tryAdvance(Consumer<? super R> action) {
+			var entry = sets.poll();
+			if (entry == null)
 				return false;
-			action.accept(sets.poll().nextAndAdvance(sets));
+			action.accept(resultFunction.apply(entry.nextAndAdvance(sets), entry.searchGrade));
 			return true;
 		}
 
 		@Override
-		public Spliterator<T> trySplit() {
+		public Spliterator<R> trySplit() {
 			return null; // split not possible
 		}
 
@@ -109,7 +220,7 @@ public class RankedTrie<T extends Comparable<T>> implements Trie<T> {
 			return Spliterator.IMMUTABLE | Spliterator.NONNULL | Spliterator.ORDERED | Spliterator.SIZED;
 		}
 
-		Stream<T> stream() {
+		Stream<R> stream() {
 			return StreamSupport.stream(this, false);
 		}
 
@@ -170,6 +281,36 @@ public class RankedTrie<T extends Comparable<T>> implements Trie<T> {
 		double rank(T entry, double searchGrade);
 	}
 
+	/**
+	 * A {@link RankingFunction} that splits the rank into a part that only depends
+	 * on the entry and a combination with the search grade. The combination must
+	 * be monotonically non-decreasing in both arguments, which allows a lazy
+	 * best-first search once the trie is {@linkplain #freeze() frozen}.
+	 */
+	public interface SeparableRankingFunction<T> extends RankingFunction<T> {
+
+		/**
+		 * Returns the part of the rank that only depends on the entry.
+		 */
+		double entryRank(T entry);
+
+		/**
+		 * Combines the entry rank with the search grade.
+		 *
+		 * @param entryRank   the rank from {@link #entryRank(Object)} or an upper
+		 *                    bound of it
+		 * @param searchGrade the grade of the match itself from
+		 *                    {@link GradingLongStepMatcher#grade(long)} or an upper
+		 *                    bound of it
+		 */
+		double rank(double entryRank, double searchGrade);
+
+		@Override
+		default double rank(T entry, double searchGrade) {
+			return rank(entryRank(entry), searchGrade);
+		}
+	}
+
 	@Override
 	public final int hashCode() {
 		return rankingFunction.hashCode() * 31 + trie.hashCode();
@@ -5,9 +5,8 @@ import java.util.Objects;
 import java.util.Set;
 
 import net.maisikoleni.javadoc.util.Cache;
+import net.maisikoleni.javadoc.util.CharHashMap;
 import net.maisikoleni.javadoc.util.CharMap;
-import net.maisikoleni.javadoc.util.CharMap.CharEntryConsumer;
-import net.maisikoleni.javadoc.util.JdkCharHashMap;
 
 public final class SimpleTrie<T> extends AbstractTrie<T, SimpleTrie.Node<T>> {
 
@@ -28,7 +27,7 @@ public final class SimpleTrie<T> extends AbstractTrie<T, SimpleTrie.Node<T>> {
 
 		@Override
 		protected <N> CharMap<N> newTransitionMap() {
-			return new JdkCharHashMap<>(2, 0.5f);
+			return new CharHashMap<>(2);
 		}
 
 		@Override
@@ -45,13 +44,8 @@ public final class SimpleTrie<T> extends AbstractTrie<T, SimpleTrie.Node<T>> {
 		}
 
 		@Override
-		protected void cacheSelf(Cache<Node<T>> nodeCache) {
-			nodeCache.put(this);
-		}
-
-		@Override
-		protected void forEachTransition(CharEntryConsumer<Node<T>> action) {
-			transitions.forEach(action);
+		protected Node<T> getOrCacheSelf(Cache<Node<T>> nodeCache) {
+			return nodeCache.getOrCache(this);
 		}
 	}
 
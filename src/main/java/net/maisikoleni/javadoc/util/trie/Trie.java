@@ -1,5 +1,6 @@
 package net.maisikoleni.javadoc.util.trie;
 
+import java.util.List;
 import java.util.Set;
 
 import net.maisikoleni.javadoc.util.Cache;
@@ -8,6 +9,46 @@ public interface Trie<T> extends PatternLookup<T> {
 
 	void compress(CompressionCache compressionCache);
 
+	/**
+	 * Inserts all entries into this trie, which must be empty. The entries are
+	 * sorted by their keys first, so every node can be created in its final form
+	 * at once instead of splitting nodes and growing their transitions one key at
+	 * a time. The trie cannot be modified afterwards, but still needs to be
+	 * compressed.
+	 *
+	 * @throws IllegalStateException if this trie is immutable or not empty
+	 */
+	void load(List<? extends TrieEntry<? extends T>> entries);
+
+	/**
+	 * Inserts all entries like {@link #load(List)}, but compresses each node as
+	 * soon as its subtree is complete. Equal subtrees are shared right away, so
+	 * only the nodes on the paths that are still being created exist in their
+	 * uncompressed form. The trie is already compressed afterwards.
+	 *
+	 * @throws IllegalStateException if this trie is immutable or not empty
+	 */
+	void load(List<? extends TrieEntry<? extends T>> entries, CompressionCache compressionCache);
+
+	/**
+	 * Adds all keys and values of the other trie to this one. The nodes of a
+	 * mutable trie of the same type are moved into this trie, which leaves the
+	 * other trie empty. All other tries are copied.
+	 * <p>
+	 * Neither trie may be modified concurrently while merging.
+	 *
+	 * @throws IllegalStateException if this trie is immutable
+	 */
+	void merge(Trie<? extends T> other);
+
+	/**
+	 * Converts the compressed trie into its immutable, array-based
+	 * representation, see {@link FrozenTrie}.
+	 *
+	 * @return the frozen representation of this trie
+	 */
+	FrozenTrie<T> freeze();
+
 	class CompressionCache {
 
 		private final Cache<?> nodes;
@@ -0,0 +1,17 @@
+package net.maisikoleni.javadoc.util.trie;
+
+import java.util.Comparator;
+import java.util.Objects;
+
+/**
+ * A key and a value to be inserted into a {@link Trie}.
+ */
+public record TrieEntry<T> (CharSequence key, T value) {
+
+	static final Comparator<TrieEntry<?>> KEY_ORDER = (a, b) -> CharSequence.compare(a.key, b.key);
+
+	public TrieEntry {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(value);
+	}
+}
@@ -0,0 +1,170 @@
+package net.maisikoleni.javadoc.util.trie;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.CRC32C;
+
+import net.maisikoleni.javadoc.util.trie.FrozenTrie.ValueCodec;
+
+/**
+ * A file containing one or more {@link FrozenTrie}s that can be memory mapped
+ * and searched in place.
+ * <p>
+ * The file starts with a header consisting of a magic number, the format
+ * version, a fingerprint of the content source chosen by the user, the
+ * CRC32C checksum and length of the remaining data and the number of tries.
+ * The tries follow in the layout of {@link FrozenTrie#writeImage}, all data is
+ * little endian. Images with a different version or an invalid checksum are
+ * rejected by {@link #map(Path)}.
+ */
+public final class TrieImage {
+
+	static final int MAGIC = 0x4A545249; // "JTRI"
+	static final int VERSION = 2;
+	static final int HEADER_SIZE = 32;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private final long fingerprint;
+	private final ByteBuffer data;
+	private final int trieCount;
+
+	private TrieImage(long fingerprint, ByteBuffer data, int trieCount) {
+		this.fingerprint = fingerprint;
+		this.data = data;
+		this.trieCount = trieCount;
+	}
+
+	public long fingerprint() {
+		return fingerprint;
+	}
+
+	public int trieCount() {
+		return trieCount;
+	}
+
+	/**
+	 * Returns the tries of this image in the order they were written, decoding
+	 * the values using the codec for the trie at the same index.
+	 */
+	public List<FrozenTrie<?>> tries(List<? extends ValueCodec<?>> codecs) throws InvalidTrieImageException {
+		if (codecs.size() != trieCount)
+			throw new InvalidTrieImageException("Expected %d tries, not %d".formatted(codecs.size(), trieCount));
+		var source = data.duplicate().order(BYTE_ORDER);
+		var tries = new ArrayList<FrozenTrie<?>>(trieCount);
+		try {
+			for (var codec : codecs)
+				tries.add(FrozenTrie.readImage(source, codec));
+		} catch (IllegalArgumentException | IndexOutOfBoundsException | BufferUnderflowException e) {
+			throw new InvalidTrieImageException("Corrupted trie image content", e);
+		}
+		if (source.hasRemaining())
+			throw new InvalidTrieImageException("Trailing data in trie image");
+		return tries;
+	}
+
+	/**
+	 * Maps the image file into memory and validates its header and checksum.
+	 *
+	 * @throws InvalidTrieImageException if the file is not a valid trie image of
+	 *                                   the current version
+	 */
+	public static TrieImage map(Path file) throws IOException {
+		MappedByteBuffer buffer;
+		try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER_SIZE)
+				throw new InvalidTrieImageException("Trie image too small");
+			buffer = channel.map(MapMode.READ_ONLY, 0, channel.size());
+		}
+		buffer.order(BYTE_ORDER);
+		if (buffer.getInt() != MAGIC)
+			throw new InvalidTrieImageException("Not a trie image");
+		int version = buffer.getInt();
+		if (version != VERSION)
+			throw new InvalidTrieImageException("Unsupported trie image version " + version);
+		long fingerprint = buffer.getLong();
+		long dataLength = buffer.getLong();
+		int checksum = buffer.getInt();
+		int trieCount = buffer.getInt();
+		if (dataLength != buffer.capacity() - HEADER_SIZE || trieCount < 0)
+			throw new InvalidTrieImageException("Corrupted trie image header");
+		var data = buffer.slice(HEADER_SIZE, (int) dataLength);
+		if (checksum(data) != checksum)
+			throw new InvalidTrieImageException("Trie image checksum mismatch");
+		return new TrieImage(fingerprint, data, trieCount);
+	}
+
+	/**
+	 * Writes the tries to a new image file. The image is written to a temporary
+	 * file first and then moved to the target, so concurrent readers never see a
+	 * partially written image.
+	 */
+	public static void write(Path file, long fingerprint, List<? extends Entry<?>> entries) throws IOException {
+		long dataLength = 0;
+		for (var entry : entries)
+			dataLength += entry.trie().imageSize();
+		if (HEADER_SIZE + dataLength > Integer.MAX_VALUE)
+			throw new IOException("Trie image too large: " + dataLength + " bytes");
+		var directory = file.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		var tempFile = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+		try {
+			try (var channel = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+				var buffer = channel.map(MapMode.READ_WRITE, 0, HEADER_SIZE + dataLength);
+				buffer.order(BYTE_ORDER).position(HEADER_SIZE);
+				for (var entry : entries)
+					entry.writeTo(buffer);
+				var data = buffer.slice(HEADER_SIZE, (int) dataLength);
+				buffer.position(0);
+				buffer.putInt(MAGIC).putInt(VERSION).putLong(fingerprint).putLong(dataLength).putInt(checksum(data))
+						.putInt(entries.size());
+				buffer.force();
+			}
+			Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
+	private static int checksum(ByteBuffer data) {
+		var crc = new CRC32C();
+		crc.update(data.duplicate().clear());
+		return (int) crc.getValue();
+	}
+
+	public record Entry<T> (FrozenTrie<T> trie, ValueCodec<T> codec) {
+
+		public Entry {
+			Objects.requireNonNull(trie);
+			Objects.requireNonNull(codec);
+		}
+
+		void writeTo(ByteBuffer target) {
+			trie.writeImage(target, codec);
+		}
+	}
+
+	public static final class InvalidTrieImageException extends IOException {
+
+		private static final long serialVersionUID = 1L;
+
+		InvalidTrieImageException(String message) {
+			super(message);
+		}
+
+		InvalidTrieImageException(String message, Throwable cause) {
+			super(message, cause);
+		}
+	}
+}
@@ -3,16 +3,37 @@ package net.maisikoleni.javadoc.search;
 import io.quarkus.test.junit.QuarkusTest;
 import jakarta.inject.Inject;
 import net.maisikoleni.javadoc.entities.SearchableEntity;
+import net.maisikoleni.javadoc.entities.Type;
 import net.maisikoleni.javadoc.search.RankedTrieSearchEngine.RankedEntry;
+import net.maisikoleni.javadoc.search.TrieGenerator.Construction;
 import net.maisikoleni.javadoc.service.SearchService;
 import net.maisikoleni.javadoc.service.SearchServiceProvider.FixLibraryId;
+import net.maisikoleni.javadoc.util.Cache;
+import net.maisikoleni.javadoc.util.regex.CompiledRegex;
+import net.maisikoleni.javadoc.util.regex.FuzzyRegex;
+import net.maisikoleni.javadoc.util.trie.FrozenTrie;
+import net.maisikoleni.javadoc.util.trie.RankedTrie;
+import net.maisikoleni.javadoc.util.trie.RankedTrie.RankedConcurrentTrie;
 import net.maisikoleni.javadoc.util.trie.RankedTrie.RankedSimpleTrie;
+import net.maisikoleni.javadoc.util.trie.RankedTrie.RankingFunction;
 import net.maisikoleni.javadoc.util.trie.Trie;
+import net.maisikoleni.javadoc.util.trie.Trie.CompressionCache;
+import net.maisikoleni.javadoc.util.trie.TrieImage;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatExceptionOfType;
 import static org.junit.jupiter.api.Assertions.assertAll;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -24,6 +45,11 @@ class RankedTrieSearchEngineTest {
 	 */
 	private static final int EXPECTED_HASH_CODE = 2108656732;
 
+	/**
+	 * Shared by the tests that only search, because generating it takes long.
+	 */
+	private static RankedTrieSearchEngine engine;
+
 	@Inject
 	@FixLibraryId
 	SearchService searchService;
@@ -56,6 +82,351 @@ class RankedTrieSearchEngineTest {
 		});
 	}
 
+	@ParameterizedTest
+	@EnumSource(names = { "PARTITIONED", "SORTED" })
+	void testGenerateRankedTrieWithConstruction(Construction construction) {
+		var index = searchService.javadoc().index();
+		var generatedTrie = new RankedTrieSearchEngine.RankedConcurrentTrieGenerator(construction)
+				.generateTrie(index.stream());
+
+		var generatedHashCode = generatedTrie.hashCode();
+		assertAll(() -> {
+			if (generatedHashCode != EXPECTED_HASH_CODE)
+				fail("%s: %d != expected: %d".formatted(construction, generatedHashCode, EXPECTED_HASH_CODE));
+		}, () -> {
+			if (!generatedTrie.equals(rankedSimpleTrieFrom(index.stream())))
+				fail("%s and serial are not equal".formatted(construction));
+		});
+	}
+
+	@Test
+	void testMergedTrieEqualsGeneratedTrie() {
+		var index = searchService.javadoc().index();
+		var generator = RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of();
+		var mergedTrie = generator.mergeTries(List.of(generator.generateTrie(index.modules()),
+				generator.generateTrie(index.packages()), generator.generateTrie(index.types()),
+				generator.generateTrie(index.members()), generator.generateTrie(index.tags())));
+
+		var mergedHashCode = mergedTrie.hashCode();
+		assertAll(() -> {
+			if (mergedHashCode != EXPECTED_HASH_CODE)
+				fail("merged: %d != expected: %d".formatted(mergedHashCode, EXPECTED_HASH_CODE));
+		}, () -> {
+			if (!mergedTrie.equals(rankedSimpleTrieFrom(index.stream())))
+				fail("merged and serial are not equal");
+		});
+	}
+
+	@Test
+	void testFrozenTrieEqualsCompressedTrie() {
+		var index = searchService.javadoc().index();
+		var frozenTrie = new TrieGenerator(false).generateTrie(index.types().stream(),
+				RankedTrieSearchEngineTest::newSimpleRankedTrie, RankedEntry::from);
+		var compressedTrie = new TrieGenerator(false, false).generateTrie(index.types().stream(),
+				RankedTrieSearchEngineTest::newSimpleRankedTrie, RankedEntry::from);
+
+		assertAll(() -> {
+			if (frozenTrie.hashCode() != compressedTrie.hashCode())
+				fail("frozen: %d != compressed: %d".formatted(frozenTrie.hashCode(), compressedTrie.hashCode()));
+		}, () -> {
+			if (!frozenTrie.equals(compressedTrie))
+				fail("frozen and compressed are not equal");
+		});
+	}
+
+	@Test
+	void testCompressionSharesEqualSubtrees() {
+		var rankingFunction = RankedTrieSearchEngine.SearchableEntityRankingFunction.<Type>get();
+		testCompressionSharesEqualSubtrees(new RankedSimpleTrie<>(rankingFunction),
+				new CompressionCache(Cache::newDefault));
+		testCompressionSharesEqualSubtrees(new RankedConcurrentTrie<>(rankingFunction),
+				new CompressionCache(Cache::newConcurrent));
+	}
+
+	private void testCompressionSharesEqualSubtrees(RankedTrie<RankedEntry<Type>> trie,
+			CompressionCache compressionCache) {
+		var types = searchService.javadoc().index().types();
+		var entry = new RankedEntry<>(types.get(0), 1.0);
+		var otherEntry = new RankedEntry<>(types.get(1), 1.0);
+		var uncompressedTrie = RankedTrieSearchEngineTest.<Type>newSimpleRankedTrie();
+		for (var anyTrie : List.of(trie, uncompressedTrie)) {
+			anyTrie.insert("a.Entry", entry);
+			anyTrie.insert("b.Entry", entry);
+			anyTrie.insert("c.Entry", otherEntry);
+		}
+
+		trie.compress(compressionCache);
+		var frozenTrie = trie.freeze();
+
+		assertThat(trie).isEqualTo(uncompressedTrie);
+		// the root and the two distinct ".Entry" subtrees
+		assertThat(frozenTrie.nodeCount()).isEqualTo(3);
+		assertThat(frozenTrie.search("b.Entry")).containsExactly(entry);
+		assertThat(frozenTrie.search("c.Entry")).containsExactly(otherEntry);
+	}
+
+	@Test
+	void testParallelCompressionSharesLikeSerialCompression() {
+		var types = searchService.javadoc().index().types();
+		var parallelTrie = new RankedTrieSearchEngine.RankedConcurrentTrieGenerator().generateTrie(types);
+		var serialTrie = rankedSimpleTrieFrom(types.stream());
+
+		assertAll(() -> {
+			if (!parallelTrie.equals(serialTrie))
+				fail("parallel and serial are not equal");
+		}, () -> {
+			int parallelNodeCount = parallelTrie.freeze().nodeCount();
+			int serialNodeCount = serialTrie.freeze().nodeCount();
+			if (parallelNodeCount != serialNodeCount)
+				fail("parallel: %d != serial: %d nodes".formatted(parallelNodeCount, serialNodeCount));
+		});
+	}
+
+	@Test
+	void testClearedCacheKeepsGeneratedTries() {
+		var types = searchService.javadoc().index().types();
+		var generator = RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of();
+		var trie = generator.generateTrie(types);
+		var hashCode = trie.hashCode();
+
+		generator.clearCache();
+		var regeneratedTrie = generator.generateTrie(types);
+
+		assertAll(() -> {
+			if (trie.hashCode() != hashCode)
+				fail("after clearing: %d != before: %d".formatted(trie.hashCode(), hashCode));
+		}, () -> {
+			if (regeneratedTrie.hashCode() != hashCode)
+				fail("regenerated: %d != generated: %d".formatted(regeneratedTrie.hashCode(), hashCode));
+		}, () -> {
+			if (!regeneratedTrie.equals(trie))
+				fail("regenerated and generated are not equal");
+		}, () -> {
+			int nodeCount = trie.freeze().nodeCount();
+			int regeneratedNodeCount = regeneratedTrie.freeze().nodeCount();
+			if (regeneratedNodeCount != nodeCount)
+				fail("regenerated: %d != generated: %d nodes".formatted(regeneratedNodeCount, nodeCount));
+		});
+	}
+
+	@Test
+	void testBestFirstSearchEqualsMergedSearch() {
+		var index = searchService.javadoc().index();
+		var frozenTrie = new TrieGenerator(false).generateTrie(index.members().stream(),
+				RankedTrieSearchEngineTest::newSimpleRankedTrie, RankedEntry::from);
+		var compressedTrie = new TrieGenerator(false, false).generateTrie(index.members().stream(),
+				RankedTrieSearchEngineTest::newSimpleRankedTrie, RankedEntry::from);
+
+		for (var query : List.of("s", "a", "Set", "map.get", "get(", "str Col~or")) {
+			var regex = TrieSearchEngineUtils.generateRegexFromQuery(query);
+			for (var caseInsensitive : List.of(false, true)) {
+				var matcher = CompiledRegex.compile(regex, caseInsensitive);
+				assertThat(frozenTrie.search(matcher))
+						.containsExactlyElementsOf(compressedTrie.search(matcher).toList());
+			}
+		}
+	}
+
+	@Test
+	void testMemoizedSearchOfSharedNodesEqualsUnsharedSearch() {
+		var types = searchService.javadoc().index().types();
+		// the suffixes of the qualified names lead to equal subtrees, which are shared
+		var frozenTrie = rankedSimpleTrieFrom(types.stream()).freeze();
+		// merging copies shared nodes for each of their occurrences
+		var unsharedTrie = RankedTrieSearchEngineTest.<Type>newSimpleRankedTrie();
+		unsharedTrie.merge(frozenTrie);
+
+		assertSearchesEqual(unsharedTrie, frozenTrie, List.of("s", "Set", "map", "j.u.OpL", "str Col~or", "a.b.c"));
+	}
+
+	@Test
+	void testBestFirstSearchOfSingleTransitionChains() {
+		var types = searchService.javadoc().index().types();
+		var keys = List.of("java.util.concurrent.ConcurrentHashMap.KeySetView", "java.util.concurrent.ConcurrentMap");
+		var trie = RankedTrieSearchEngineTest.<Type>newSimpleRankedTrie();
+		var compressedTrie = RankedTrieSearchEngineTest.<Type>newSimpleRankedTrie();
+		int i = 0;
+		// a value on every prefix, so the chains of single transitions have values along the way
+		for (var key : keys) {
+			for (int length = 1; length <= key.length(); length++) {
+				var entry = new RankedEntry<>(types.get(i++ % types.size()), length % 5);
+				trie.insert(key.substring(0, length), entry);
+				compressedTrie.insert(key.substring(0, length), entry);
+			}
+		}
+		compressedTrie.compress(new CompressionCache(Cache::newDefault));
+
+		assertSearchesEqual(trie, compressedTrie.freeze(), List.of("c", "j.u.c", "C~M", "KeySet", keys.get(0)));
+	}
+
+	@Test
+	void testTrieImageRoundTrip(@TempDir Path tempDir) throws IOException {
+		var index = searchService.javadoc().index();
+		var imageFile = tempDir.resolve("index.trie");
+		var generatedEngine = RankedTrieSearchEngine.fromImageOrGenerate(index,
+				RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of(), imageFile);
+		assertThat(imageFile).exists();
+
+		var mappedEngine = RankedTrieSearchEngine.fromImageOrGenerate(index,
+				RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of(), imageFile);
+		for (var query : List.of("Set", "j.u.OpL", "map.get", "str Col~or", "java.base/")) {
+			assertThat(mappedEngine.search(query).limit(50))
+					.containsExactlyElementsOf(generatedEngine.search(query).limit(50).toList());
+		}
+
+		try (var channel = FileChannel.open(imageFile, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			var corruptedByte = ByteBuffer.allocate(1);
+			channel.read(corruptedByte, channel.size() / 2);
+			corruptedByte.put(0, (byte) ~corruptedByte.get(0));
+			channel.write(corruptedByte.flip(), channel.size() / 2);
+		}
+		assertThatExceptionOfType(TrieImage.InvalidTrieImageException.class)
+				.isThrownBy(() -> TrieImage.map(imageFile));
+	}
+
+	@Test
+	void testImageFingerprintDependsOnPolicy() {
+		var index = searchService.javadoc().index();
+		long fingerprint = RankedTrieSearchEngine.imageFingerprint(index, SubdivisionPolicy.ALL);
+
+		assertThat(RankedTrieSearchEngine.imageFingerprint(index, SubdivisionPolicy.ALL)).isEqualTo(fingerprint);
+		assertThat(RankedTrieSearchEngine.imageFingerprint(index, new SubdivisionPolicy(Integer.MAX_VALUE, 0.0, false)))
+				.isNotEqualTo(fingerprint);
+		assertThat(RankedTrieSearchEngine.imageFingerprint(index, new SubdivisionPolicy(Integer.MAX_VALUE, 1.25, true)))
+				.isNotEqualTo(fingerprint);
+	}
+
+	@Test
+	void testSubdivisionPolicyKeyCounts() {
+		var index = searchService.javadoc().index();
+		var allKeys = RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of().countKeys(index.stream());
+		var boundedKeys = RankedTrieSearchEngine.RankedConcurrentTrieGenerator
+				.of(new SubdivisionPolicy(4, 0.0, true)).countKeys(index.stream());
+		var segmentKeys = RankedTrieSearchEngine.RankedConcurrentTrieGenerator
+				.of(new SubdivisionPolicy(Integer.MAX_VALUE, 2.5, true)).countKeys(index.stream());
+		var noParameterKeys = RankedTrieSearchEngine.RankedConcurrentTrieGenerator
+				.of(new SubdivisionPolicy(Integer.MAX_VALUE, 0.0, false)).countKeys(index.stream());
+		var nameKeys = RankedTrieSearchEngine.RankedConcurrentTrieGenerator.of(new SubdivisionPolicy(0, 0.0, true))
+				.countKeys(index.stream());
+
+		assertThat(nameKeys).isEqualTo(index.stream().count());
+		assertThat(boundedKeys).isLessThan(allKeys).isLessThanOrEqualTo(5 * nameKeys);
+		assertThat(segmentKeys).isLessThan(allKeys).isGreaterThan(nameKeys);
+		assertThat(noParameterKeys).isLessThan(allKeys).isGreaterThan(nameKeys);
+	}
+
+	@Test
+	void testCompiledRegexCacheReusesRepeatedQueries() {
+		var cache = new CompiledRegexCache(2, 4);
+		var first = cache.compile("Set");
+		var second = cache.compile("Set");
+
+		assertThat(second).isNotSameAs(first);
+		assertThat(cache.compile("Set")).isSameAs(second);
+		assertThat(second.caseSensitive()).matches(regex -> !regex.isCaseInsensitive());
+		assertThat(second.caseInsensitive()).matches(regex -> regex.isCaseInsensitive());
+	}
+
+	@Test
+	void testCompiledRegexCacheKeepsHotQueriesWhenFull() {
+		var cache = new CompiledRegexCache(2, 8);
+		cache.compile("Set");
+		var hot = cache.compile("Set");
+		cache.compile("Map");
+		var cold = cache.compile("Map");
+
+		for (int i = 0; i < 100; i++) {
+			cache.compile("Unique" + i);
+			if (i % 10 == 0)
+				assertThat(cache.compile("Set")).isSameAs(hot);
+		}
+		// unique queries are dropped first, the least recently used cached ones only when necessary
+		assertThat(cache.compile("Set")).isSameAs(hot);
+		assertThat(cache.compile("Map")).isSameAs(cold);
+		for (int i = 0; i < 10; i++) {
+			cache.compile("Repeated" + i);
+			cache.compile("Repeated" + i);
+			cache.compile("Set");
+		}
+		assertThat(cache.compile("Set")).isSameAs(hot);
+		assertThat(cache.compile("Map")).isNotSameAs(cold);
+	}
+
+	@Test
+	void testCaseInsensitiveMatchesOnlyWithoutCaseSensitiveOnes() {
+		var engine = engine();
+		for (var query : List.of("Set", "set", "Module", "hashmap", "map.get(", "str col~or")) {
+			var regex = TrieSearchEngineUtils.generateRegexFromQuery(query);
+			var caseSensitive = engine.searchGroupedByType(regex, false);
+			var expected = caseSensitive.ifEmptyTry(() -> engine.searchGroupedByType(regex, true));
+
+			assertThat(groupsOf(engine.searchGroupedByType(query))).as(query)
+					.containsExactlyElementsOf(groupsOf(expected));
+		}
+	}
+
+	@Test
+	void testFuzzySearchFindsMistypedNames() {
+		var engine = engine();
+
+		assertThat(engine.search("HashMpa").limit(5).map(SearchableEntity::qualifiedName))
+				.contains("java.base/java.util.HashMap");
+		assertThat(engine.search("Colections").limit(5).map(SearchableEntity::qualifiedName))
+				.contains("java.base/java.util.Collections");
+		assertThat(engine.searchGroupedByType("Sytem.out").members().limit(5).map(SearchableEntity::qualifiedName))
+				.contains("java.base/java.lang.System.out");
+	}
+
+	@Test
+	void testStepBudgetKeepsFirstResults() {
+		var index = searchService.javadoc().index();
+		var trie = new TrieGenerator(false).generateTrie(index.members().stream(),
+				RankedTrieSearchEngineTest::newSimpleRankedTrie, RankedEntry::from);
+		var matcher = new FuzzyRegex(
+				CompiledRegex.compile(TrieSearchEngineUtils.generateRegexFromQuery("map.gte("), true), 2);
+		var results = trie.search(matcher).toList();
+
+		assertThat(results).isNotEmpty();
+		assertThat(trie.search(matcher, 0)).isEmpty();
+		for (var stepBudget : List.of(1_000L, 10_000L, 100_000L)) {
+			var boundedResults = trie.search(matcher, stepBudget).toList();
+			assertThat(results).hasSizeGreaterThanOrEqualTo(boundedResults.size());
+			assertThat(results.subList(0, boundedResults.size())).containsExactlyElementsOf(boundedResults);
+		}
+	}
+
+	private RankedTrieSearchEngine engine() {
+		if (engine == null)
+			engine = new RankedTrieSearchEngine(searchService.javadoc().index());
+		return engine;
+	}
+
+	/**
+	 * Asserts that the best-first and the merged search of the frozen trie find
+	 * the same results in the same order as the search of the other trie.
+	 */
+	private static <S extends SearchableEntity> void assertSearchesEqual(RankedTrie<RankedEntry<S>> expectedTrie,
+			FrozenTrie<RankedEntry<S>> frozenTrie, List<String> queries) {
+		var bestFirstTrie = new RankedTrie<>(frozenTrie, RankedTrieSearchEngine.SearchableEntityRankingFunction.get());
+		// not separable, so the value sets of the graded search are merged instead
+		RankingFunction<RankedEntry<S>> rankingFunction = (entry, searchGrade) -> entry.rank() + searchGrade;
+		var mergedTrie = new RankedTrie<>(frozenTrie, rankingFunction);
+		for (var query : queries) {
+			var regex = TrieSearchEngineUtils.generateRegexFromQuery(query);
+			for (var caseInsensitive : List.of(false, true)) {
+				var matcher = CompiledRegex.compile(regex, caseInsensitive);
+				var expected = expectedTrie.search(matcher).toList();
+				assertThat(bestFirstTrie.search(matcher)).as(query).containsExactlyElementsOf(expected);
+				assertThat(mergedTrie.search(matcher)).as(query).containsExactlyElementsOf(expected);
+			}
+		}
+	}
+
+	private static List<List<SearchableEntity>> groupsOf(GroupedSearchResult result) {
+		return Stream.of(result.modules(), result.packages(), result.types(), result.members(), result.tags())
+				.<List<SearchableEntity>>map(group -> List.copyOf(group.toList())).toList();
+	}
+
 	static <S extends SearchableEntity> Trie<RankedEntry<S>> rankedSimpleTrieFrom(Stream<S> index) {
 		return new TrieGenerator(false).generateTrie(index, RankedTrieSearchEngineTest::newSimpleRankedTrie,
 				RankedEntry::from);
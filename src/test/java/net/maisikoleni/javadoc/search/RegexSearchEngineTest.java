@@ -7,6 +7,8 @@ import net.maisikoleni.javadoc.service.SearchService;
 import net.maisikoleni.javadoc.service.SearchServiceProvider.FixLibraryId;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @QuarkusTest
@@ -82,4 +84,20 @@ class RegexSearchEngineTest {
 				"Getting and Setting Calendar Field Values", //
 				"Unmodifiable Sets");
 	}
+
+	@Test
+	void testSearchWithLimit() {
+		var engine = new RegexSearchEngine(searchService.javadoc().index());
+
+		for (var query : List.of("Set", "get", "List")) {
+			var allResults = engine.search(query).toList();
+			assertThat(engine.search(query, 15)).containsExactlyElementsOf(allResults.subList(0, 15));
+			assertThat(engine.search(query, 1)).containsExactly(allResults.get(0));
+			assertThat(engine.search(query, 0)).isEmpty();
+		}
+		var limitedResult = engine.searchGroupedByType("Set", 5);
+		var result = engine.searchGroupedByType("Set");
+		assertThat(limitedResult.types()).containsExactlyElementsOf(result.types().limit(5).toList());
+		assertThat(limitedResult.tags()).containsExactlyElementsOf(result.tags().limit(5).toList());
+	}
 }
@@ -0,0 +1,68 @@
+package net.maisikoleni.javadoc.service;
+
+import net.maisikoleni.javadoc.config.Configuration.LibraryConfigValue;
+import net.maisikoleni.javadoc.config.Configuration.SubdivisionConfig;
+import net.maisikoleni.javadoc.search.SubdivisionPolicy;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JavadocSearchEnginesTest {
+
+	private static final URI JDK_URL = URI.create("https://docs.oracle.com/en/java/javase/21/docs/api/");
+	private static final URI JUNIT_URL = URI.create("https://junit.org/junit5/docs/current/api/");
+
+	private static final Subdivision ALL_SUFFIXES = new Subdivision(Integer.MAX_VALUE, 0.0, true);
+	private static final Subdivision FEW_SUFFIXES = new Subdivision(4, 1.25, false);
+
+	@Test
+	void testLibrariesWithSameBaseUrlShareSubdivisionPolicy() {
+		Map<String, LibraryConfigValue> libraries = Map.of( //
+				"jdk", new Library(JDK_URL, FEW_SUFFIXES), //
+				"jdk-latest", new Library(JDK_URL, new Subdivision(4, 1.25, false)), //
+				"junit", new Library(JUNIT_URL, ALL_SUFFIXES));
+
+		var subdivisionPolicies = JavadocSearchEngines.subdivisionPoliciesByBaseUrl(libraries);
+
+		assertThat(subdivisionPolicies).isEqualTo(Map.of( //
+				JDK_URL, new SubdivisionPolicy(4, 1.25, false), //
+				JUNIT_URL, SubdivisionPolicy.ALL));
+	}
+
+	@Test
+	void testLibrariesWithSameBaseUrlAndDifferentSubdivisionAreRejected() {
+		Map<String, LibraryConfigValue> libraries = Map.of( //
+				"jdk", new Library(JDK_URL, ALL_SUFFIXES), //
+				"jdk-latest", new Library(JDK_URL, FEW_SUFFIXES), //
+				"junit", new Library(JUNIT_URL, FEW_SUFFIXES));
+
+		assertThatThrownBy(() -> JavadocSearchEngines.subdivisionPoliciesByBaseUrl(libraries))
+				.isInstanceOf(IllegalStateException.class)
+				.hasMessageContaining("jdk and jdk-latest have the same base URL " + JDK_URL);
+	}
+
+	record Library(URI baseUrl, SubdivisionConfig subdivision) implements LibraryConfigValue {
+
+		@Override
+		public String name() {
+			return "Name";
+		}
+
+		@Override
+		public String description() {
+			return "Description";
+		}
+
+		@Override
+		public boolean isDefault() {
+			return false;
+		}
+	}
+
+	record Subdivision(int maxSuffixes, double minSuffixRank, boolean parameterLists) implements SubdivisionConfig {
+	}
+}
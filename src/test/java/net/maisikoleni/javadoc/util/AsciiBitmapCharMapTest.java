@@ -0,0 +1,84 @@
+package net.maisikoleni.javadoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class AsciiBitmapCharMapTest {
+
+	// keys at the borders of the two bitmap words and of the ASCII range
+	private static final String ASCII_KEYS = "\u0000\u0001?@AZaz~\u007F";
+	private static final String OTHER_KEYS = "\u0080\u00E9\u4E2D\uFFFF";
+
+	@Test
+	void testAsciiAndOtherKeysAreSplit() {
+		var source = createSource();
+		var map = AsciiBitmapCharMap.copyOf(source);
+
+		assertThat(map).isInstanceOf(AsciiBitmapCharMap.class);
+		assertThat(map.size()).isEqualTo(ASCII_KEYS.length() + OTHER_KEYS.length());
+		for (char c : (ASCII_KEYS + OTHER_KEYS).toCharArray()) {
+			assertThat(map.containsKey(c)).as("key %04x", (int) c).isTrue();
+			assertThat(map.get(c)).as("key %04x", (int) c).isEqualTo(value(c));
+		}
+		for (char c : "\u0002>BYb}\u0081\uFFFE".toCharArray()) {
+			assertThat(map.containsKey(c)).as("key %04x", (int) c).isFalse();
+			assertThat(map.get(c)).as("key %04x", (int) c).isNull();
+		}
+		assertThat(keysOf(map)).containsExactlyElementsOf(keysOf(FixKeyedCharMap.copyOf(source)));
+	}
+
+	@Test
+	void testPutReplacesOnlyExistingKeys() {
+		var map = AsciiBitmapCharMap.copyOf(createSource());
+
+		assertThat(map.put('@', "new@")).isEqualTo(value('@'));
+		assertThat(map.put('\u00E9', "new\u00E9")).isEqualTo(value('\u00E9'));
+		assertThat(map.get('@')).isEqualTo("new@");
+		assertThat(map.get('\u00E9')).isEqualTo("new\u00E9");
+		assertThatThrownBy(() -> map.put('B', "B")).isInstanceOf(UnsupportedOperationException.class);
+		assertThatThrownBy(() -> map.put('\u0081', "\u0081")).isInstanceOf(UnsupportedOperationException.class);
+	}
+
+	@Test
+	void testEqualsAndHashCodeMatchOtherCharMaps() {
+		var source = createSource();
+		var map = AsciiBitmapCharMap.copyOf(source);
+		var concurrentMap = new ConcurrentCharHashMap<String>();
+		source.forEach(concurrentMap::put);
+		List<CharMap<String>> otherMaps = List.of(source, FixKeyedCharMap.copyOf(source), concurrentMap);
+
+		for (var other : otherMaps) {
+			assertThat(map).isEqualTo(other);
+			assertThat(other).isEqualTo(map);
+			assertThat(map).hasSameHashCodeAs(other);
+		}
+		var changed = createSource();
+		changed.put('~', "changed");
+		assertThat(map).isNotEqualTo(AsciiBitmapCharMap.copyOf(changed)).isNotEqualTo(changed);
+		changed = createSource();
+		changed.put('\u4E2D', "changed");
+		assertThat(map).isNotEqualTo(AsciiBitmapCharMap.copyOf(changed)).isNotEqualTo(changed);
+	}
+
+	private static CharHashMap<String> createSource() {
+		var source = new CharHashMap<String>();
+		for (char c : (OTHER_KEYS + ASCII_KEYS).toCharArray())
+			source.put(c, value(c));
+		return source;
+	}
+
+	private static String value(char c) {
+		return "v" + (int) c;
+	}
+
+	private static List<Character> keysOf(CharMap<?> map) {
+		var keys = new ArrayList<Character>();
+		map.forEach((c, v) -> keys.add(c));
+		return keys;
+	}
+}
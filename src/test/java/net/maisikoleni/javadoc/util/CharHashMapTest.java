@@ -0,0 +1,159 @@
+package net.maisikoleni.javadoc.util;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static net.maisikoleni.javadoc.util.ConcurrentTestUtils.runConcurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CharHashMapTest {
+
+	private static final int THREADS = 8;
+
+	private static final char[] KEYS = createKeys();
+
+	@Test
+	void testPutAndGet() {
+		testPutAndGet(CharHashMap::new);
+		testPutAndGet(ConcurrentCharHashMap::new);
+	}
+
+	private static void testPutAndGet(Supplier<CharMap<String>> mapFactory) {
+		var map = mapFactory.get();
+
+		assertThat(map.put('a', "a1")).isNull();
+		assertThat(map.put('\uFFFF', "max")).isNull();
+		assertThat(map.put('a', "a2")).isEqualTo("a1");
+		assertThat(map.size()).isEqualTo(2);
+		assertThat(map.get('a')).isEqualTo("a2");
+		assertThat(map.get('\uFFFF')).isEqualTo("max");
+		assertThat(map.containsKey('\u0000')).isFalse();
+		assertThat(map.get('b')).isNull();
+		assertThatThrownBy(() -> map.put('b', null)).isInstanceOf(NullPointerException.class);
+		assertThat(map.containsKey('b')).isFalse();
+	}
+
+	@Test
+	void testConcurrentUpdatesOfSingleEntries() {
+		var map = new ConcurrentCharHashMap<String>();
+		var value = "a1";
+
+		assertThat(map.putIfAbsent('a', value)).isNull();
+		assertThat(map.putIfAbsent('a', "a2")).isSameAs(value);
+		assertThat(map.replace('a', new String(value), "a2")).isFalse();
+		assertThat(map.replace('b', null, "b1")).isFalse();
+		assertThat(map.replace('a', value, "a2")).isTrue();
+		assertThat(map.get('a')).isEqualTo("a2");
+		assertThat(map.size()).isEqualTo(1);
+	}
+
+	@Test
+	void testResizeKeepsAllEntries() {
+		testResizeKeepsAllEntries(CharHashMap::new);
+		testResizeKeepsAllEntries(ConcurrentCharHashMap::new);
+	}
+
+	private static void testResizeKeepsAllEntries(Supplier<CharMap<String>> mapFactory) {
+		var map = mapFactory.get();
+		for (int i = 0; i < KEYS.length; i++) {
+			map.put(KEYS[i], value(KEYS[i]));
+			// check all entries after each put, so every resize is covered
+			assertThat(map.size()).isEqualTo(i + 1);
+			for (int j = 0; j <= i; j++)
+				assertThat(map.get(KEYS[j])).as("key %04x after %d puts", (int) KEYS[j], i + 1)
+						.isEqualTo(value(KEYS[j]));
+		}
+		var keys = new ArrayList<Character>();
+		map.forEach((c, v) -> {
+			keys.add(c);
+			assertThat(v).isEqualTo(value(c));
+		});
+		assertThat(keys).containsExactlyInAnyOrderElementsOf(asList(KEYS));
+	}
+
+	@Test
+	void testEqualsAndHashCodeMatchFixKeyedCharMap() {
+		var map = createMap(new CharHashMap<>());
+		var concurrentMap = createMap(new ConcurrentCharHashMap<>());
+		var fixKeyedMap = FixKeyedCharMap.copyOf(map);
+		List<CharMap<String>> maps = List.of(map, concurrentMap, fixKeyedMap);
+
+		for (var first : maps) {
+			for (var second : maps) {
+				assertThat(first).isEqualTo(second);
+				assertThat(first).hasSameHashCodeAs(second);
+			}
+		}
+		var smaller = new CharHashMap<String>();
+		map.forEach((c, v) -> {
+			if (c != KEYS[0])
+				smaller.put(c, v);
+		});
+		var changed = createMap(new ConcurrentCharHashMap<>());
+		changed.put(KEYS[KEYS.length - 1], "changed");
+		for (var first : maps) {
+			assertThat(first).isNotEqualTo(smaller).isNotEqualTo(changed);
+			assertThat(smaller).isNotEqualTo(first);
+			assertThat(changed).isNotEqualTo(first);
+		}
+	}
+
+	@RepeatedTest(10)
+	void testConcurrentPutsAndGets() throws Exception {
+		var map = new ConcurrentCharHashMap<String>();
+		var winners = new String[THREADS][KEYS.length];
+
+		runConcurrently(THREADS, thread -> {
+			for (int i = 0; i < KEYS.length; i++) {
+				// start at different keys, so that threads insert and read at the same time
+				int index = (i + thread * KEYS.length / THREADS) % KEYS.length;
+				char key = KEYS[index];
+				var value = value(key) + "#" + thread;
+				var current = map.putIfAbsent(key, value);
+				winners[thread][index] = current == null ? value : current;
+				for (int j = 0; j < KEYS.length; j++) {
+					var seen = map.get(KEYS[j]);
+					if (seen != null && !seen.startsWith(value(KEYS[j]) + "#"))
+						throw new AssertionError("wrong value " + seen + " for key " + (int) KEYS[j]);
+				}
+			}
+		});
+
+		assertThat(map.size()).isEqualTo(KEYS.length);
+		for (int index = 0; index < KEYS.length; index++) {
+			var value = map.get(KEYS[index]);
+			for (int thread = 0; thread < THREADS; thread++)
+				assertThat(winners[thread][index]).isSameAs(value);
+		}
+	}
+
+	/**
+	 * Keys spread over the whole char range, many of them with the highest bit
+	 * set.
+	 */
+	private static char[] createKeys() {
+		var keys = new char[300];
+		for (int i = 0; i < keys.length; i++)
+			keys[i] = (char) (i % 3 == 0 ? i << 7 : Character.MAX_VALUE - i);
+		return keys;
+	}
+
+	private static <M extends CharMap<String>> M createMap(M map) {
+		for (char key : KEYS)
+			map.put(key, value(key));
+		return map;
+	}
+
+	private static String value(char c) {
+		return "v" + (int) c;
+	}
+
+	private static List<Character> asList(char[] chars) {
+		return new String(chars).chars().mapToObj(c -> (char) c).toList();
+	}
+}
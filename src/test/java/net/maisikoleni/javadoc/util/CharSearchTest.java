@@ -0,0 +1,95 @@
+package net.maisikoleni.javadoc.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class CharSearchTest {
+
+	private static final int MAX_LENGTH = 70;
+
+	@Test
+	void testScalarSearchEquivalence() {
+		var random = new Random(42);
+		for (int length = 0; length <= MAX_LENGTH; length++) {
+			var keys = createSortedKeys(random, length);
+			// buffers with an array offset and without an accessible array
+			var buffer = CharBuffer.wrap(createPaddedKeys(keys), 3, length).slice();
+			var readOnlyBuffer = buffer.asReadOnlyBuffer();
+			for (int from = 0; from <= length; from += 1 + from / 8) {
+				for (int to = from; to <= length; to++) {
+					for (char c : probeChars(keys)) {
+						int expected = linearIndexOf(keys, from, to, c);
+						assertThat(CharSearch.indexOf(keys, from, to, c)).as("%s in [%d,%d)", (int) c, from, to)
+								.isEqualTo(expected);
+						assertThat(CharSearch.indexOf(buffer, from, to, c)).isEqualTo(expected);
+						assertThat(CharSearch.indexOf(readOnlyBuffer, from, to, c)).isEqualTo(expected);
+					}
+				}
+			}
+		}
+	}
+
+	@Test
+	void testVectorizedSearchEquivalence() {
+		// only run with the vector-api profile
+		assumeTrue(CharSearch.VECTORIZED_SEARCH != null, "vectorized search not enabled");
+		var random = new Random(42);
+		for (int length = 0; length <= MAX_LENGTH; length++) {
+			var keys = createSortedKeys(random, length);
+			for (int from = 0; from <= length; from++) {
+				for (int to = from; to <= length; to++) {
+					for (char c : probeChars(keys))
+						assertThat(CharSearch.VECTORIZED_SEARCH.indexOf(keys, from, to, c))
+								.as("%s in [%d,%d)", (int) c, from, to).isEqualTo(linearIndexOf(keys, from, to, c));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Creates distinct sorted keys that include both ends of the char range.
+	 */
+	private static char[] createSortedKeys(Random random, int length) {
+		var keys = new TreeSet<Character>();
+		if (length >= 2)
+			keys.addAll(List.of(Character.MIN_VALUE, Character.MAX_VALUE));
+		while (keys.size() < length)
+			keys.add((char) random.nextInt(Character.MAX_VALUE + 1));
+		var sortedKeys = new char[length];
+		int i = 0;
+		for (char key : keys)
+			sortedKeys[i++] = key;
+		return sortedKeys;
+	}
+
+	/**
+	 * Returns all keys and the chars next to them.
+	 */
+	private static char[] probeChars(char[] keys) {
+		var chars = new StringBuilder("\u0000a\uFFFF");
+		for (char key : keys)
+			chars.append((char) (key - 1)).append(key).append((char) (key + 1));
+		return chars.toString().toCharArray();
+	}
+
+	private static char[] createPaddedKeys(char[] keys) {
+		var padded = new char[keys.length + 6];
+		System.arraycopy(keys, 0, padded, 3, keys.length);
+		return padded;
+	}
+
+	private static int linearIndexOf(char[] keys, int from, int to, char c) {
+		for (int i = from; i < to; i++) {
+			if (keys[i] == c)
+				return i;
+		}
+		return -1;
+	}
+}
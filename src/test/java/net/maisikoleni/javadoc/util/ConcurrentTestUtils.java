@@ -0,0 +1,43 @@
+package net.maisikoleni.javadoc.util;
+
+import java.util.ArrayList;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public final class ConcurrentTestUtils {
+
+	private ConcurrentTestUtils() {
+	}
+
+	/**
+	 * Runs the task in the given number of threads that start at the same time
+	 * and rethrows the first failure.
+	 */
+	public static void runConcurrently(int threads, ThreadTask task) throws Exception {
+		var barrier = new CyclicBarrier(threads);
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			var futures = new ArrayList<Future<?>>();
+			for (int thread = 0; thread < threads; thread++) {
+				int threadIndex = thread;
+				futures.add(executor.submit(() -> {
+					barrier.await();
+					task.run(threadIndex);
+					return null;
+				}));
+			}
+			for (var future : futures)
+				future.get();
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@FunctionalInterface
+	public interface ThreadTask {
+
+		void run(int thread) throws Exception;
+	}
+}
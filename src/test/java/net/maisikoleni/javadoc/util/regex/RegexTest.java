@@ -9,9 +9,12 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestReporter;
 import org.junit.jupiter.api.condition.DisabledIfEnvironmentVariable;
 
+import java.util.HashSet;
 import java.util.Map;
+import java.util.function.Function;
 import java.util.regex.Pattern;
 import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -56,6 +59,77 @@ class RegexTest {
 
 	@Test
 	void testRegexMatchingEquivalence() {
+		assertMatchingEquivalence(regex, compiledRegex, jdkPattern);
+	}
+
+	@Test
+	void testLongRegexMatchingEquivalence() {
+		var longRegex = createLongRegex();
+		assertMatchingEquivalence(longRegex, CompiledRegex.compile(longRegex), Pattern.compile(longRegex.toString()));
+	}
+
+	@Test
+	void testRequiredCharEquivalence() {
+		var longRegex = createLongRegex();
+		// only chars without case variants are required when ignoring case
+		var literalRegex = new Concatenation(new Literal("java.base/java.util.Map.Entry"), new Star(CharClass.ANY));
+		var requiredChars = Stream.of(compiledRegex, CompiledRegex.compile(regex, true),
+				CompiledRegex.compile(longRegex), CompiledRegex.compile(longRegex, true),
+				CompiledRegex.compile(literalRegex, true))
+				.mapToLong(RegexTest::assertRequiredCharEquivalence).sum();
+
+		assertThat(requiredChars).isPositive();
+	}
+
+	/**
+	 * Creates a regex with more instructions than the bit-parallel matching
+	 * supports.
+	 */
+	private static Regex createLongRegex() {
+		var anyWhitespace = new Star(new CharClass(Character::isWhitespace, "\\s"));
+		return "java.base/java.util.concurrent.ConcurrentHashMap".chars()
+				.mapToObj(c -> Stream.<Regex>of(new Literal(Character.toString(c)), anyWhitespace))
+				.flatMap(Function.identity()).collect(Concatenation.joining());
+	}
+
+	@Test
+	void testCharTableEquivalence() {
+		CharPredicate letter = Character::isLetter;
+		CharPredicate lowerCaseWithoutS = c -> c != 's' && Character.isLowerCase(c);
+		var letterTable = CharTable.of(letter);
+		var lowerCaseWithoutSTable = CharTable.of(CharPredicate.caseIndependent(Character::isLowerCase)).without('s');
+		var letterIgnoreCaseTable = letterTable.ignoreCase();
+
+		var differentChars = IntStream.rangeClosed(Character.MIN_VALUE, Character.MAX_VALUE).filter(i -> {
+			char c = (char) i;
+			boolean letterIgnoreCase = letter.test(Character.toLowerCase(c)) || letter.test(Character.toUpperCase(c));
+			return letterTable.test(c) != letter.test(c) || letterIgnoreCaseTable.test(c) != letterIgnoreCase
+					|| lowerCaseWithoutSTable.test(c) != lowerCaseWithoutS.test(c)
+					|| CaseFolding.toLowerCase(c) != Character.toLowerCase(c)
+					|| CaseFolding.toUpperCase(c) != Character.toUpperCase(c);
+		});
+		assertThat(differentChars).isEmpty();
+		assertThat(lowerCaseWithoutSTable.ignoreCase()).isSameAs(lowerCaseWithoutSTable);
+	}
+
+	@Test
+	void testFuzzyRegexEdits() {
+		var hashMap = new Concatenation(new Literal("HashMap"), new Star(CharClass.ANY));
+		var fuzzyRegex = new FuzzyRegex(CompiledRegex.compile(hashMap, true), 2);
+		var edits = Stream.of("hashmap.get", "HashMpa", "HasXMap", "HashMa", "HshMp", "HashXXMap", "Hash", "XXXXMap")
+				.mapToInt(s -> {
+					long state = fuzzyRegex.stepThrough(s);
+					return fuzzyRegex.isMatch(state) ? fuzzyRegex.getEdits(state) : -1;
+				});
+
+		assertThat(edits).containsExactly(0, 1, 1, 1, 2, 2, -1, -1);
+		assertThat(fuzzyRegex.grade(fuzzyRegex.stepThrough("HashMpa")))
+				.isLessThan(fuzzyRegex.grade(fuzzyRegex.stepThrough("HashMap")))
+				.isGreaterThan(fuzzyRegex.grade(fuzzyRegex.stepThrough("HshMp")));
+		assertThat(new FuzzyRegex(CompiledRegex.compile(hashMap, true), 0).matches("HashMpa")).isFalse();
+	}
+
+	private static void assertMatchingEquivalence(Regex regex, CompiledRegex compiledRegex, Pattern jdkPattern) {
 		for (var name : names) {
 			// Custom regex
 			boolean resultRegex = regex.matches(name);
@@ -79,6 +153,33 @@ class RegexTest {
 		}
 	}
 
+	/**
+	 * Checks for all states reached with prefixes of the names that no char other
+	 * than the required one leads to an OK state.
+	 *
+	 * @return the number of states with a required char
+	 */
+	private static long assertRequiredCharEquivalence(CompiledRegex compiledRegex) {
+		var states = new HashSet<Long>();
+		for (var name : names) {
+			long state = compiledRegex.getStartState();
+			for (int i = 0; i <= name.length() && compiledRegex.isOk(state); i++) {
+				states.add(state);
+				if (i < name.length())
+					state = compiledRegex.step(name.charAt(i), state);
+			}
+		}
+		return states.stream().filter(state -> {
+			int requiredChar = compiledRegex.requiredChar(state);
+			if (requiredChar < 0)
+				return false;
+			var okChars = IntStream.rangeClosed(Character.MIN_VALUE, Character.MAX_VALUE)
+					.filter(c -> compiledRegex.isOk(compiledRegex.step((char) c, state)));
+			assertThat(okChars).as("OK chars in state %x of %s", state, compiledRegex).containsExactly(requiredChar);
+			return true;
+		}).count();
+	}
+
 	@Test
 	@DisabledIfEnvironmentVariable(named = "GITHUB_ACTIONS", matches = "true", //
 			disabledReason = "GitHub Actions cannot do this reliably due to weaker and non-dedicated system")
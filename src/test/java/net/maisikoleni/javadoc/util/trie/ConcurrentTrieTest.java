@@ -0,0 +1,62 @@
+package net.maisikoleni.javadoc.util.trie;
+
+import org.junit.jupiter.api.RepeatedTest;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static net.maisikoleni.javadoc.util.ConcurrentTestUtils.runConcurrently;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrentTrieTest {
+
+	private static final int THREADS = 8;
+
+	@Test
+	void testConcurrentInsertEqualsSimpleTrie() throws Exception {
+		var random = new Random(42);
+		var keys = new ArrayList<String>();
+		for (int i = 0; i < 5_000; i++) {
+			// few distinct chars, so that many keys share prefixes and split the same nodes
+			var key = new StringBuilder();
+			for (int length = 1 + random.nextInt(12); key.length() < length;)
+				key.append((char) ('a' + random.nextInt(3)));
+			keys.add(key.toString());
+		}
+		var simpleTrie = new SimpleTrie<String>();
+		var concurrentTrie = new ConcurrentTrie<String>();
+		for (int thread = 0; thread < THREADS; thread++) {
+			for (var key : keys)
+				simpleTrie.insert(key, key + "#" + thread % 3);
+		}
+
+		runConcurrently(THREADS, thread -> {
+			var shuffledKeys = new ArrayList<>(keys);
+			Collections.shuffle(shuffledKeys, new Random(thread));
+			for (var key : shuffledKeys)
+				concurrentTrie.insert(key, key + "#" + thread % 3);
+		});
+
+		assertThat(concurrentTrie).isEqualTo(simpleTrie);
+		for (var key : keys)
+			assertThat(concurrentTrie.search(key)).containsExactlyInAnyOrderElementsOf(simpleTrie.search(key).toList());
+	}
+
+	@RepeatedTest(20)
+	void testConcurrentSplitsOfSameEdge() throws Exception {
+		var keys = List.of("abcdefghij", "abcdeX", "abcdeY", "abcZ", "abcdefghiQ", "ab", "abcdefghij", "abcdefghijK");
+		var simpleTrie = new SimpleTrie<String>();
+		var concurrentTrie = new ConcurrentTrie<String>();
+		simpleTrie.insert("abcdefghijklmn", "long");
+		concurrentTrie.insert("abcdefghijklmn", "long");
+		for (int thread = 0; thread < THREADS; thread++)
+			simpleTrie.insert(keys.get(thread), "split" + thread);
+
+		runConcurrently(THREADS, thread -> concurrentTrie.insert(keys.get(thread), "split" + thread));
+
+		assertThat(concurrentTrie).isEqualTo(simpleTrie);
+	}
+}